@@ -0,0 +1,66 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.channel.ChannelProcessor;
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.factory.SourceFactory;
+
+/**
+ * Sources configured as in an agent, never connected to a server.
+ */
+public final class BenchmarkSources {
+
+    private BenchmarkSources() {
+    }
+
+    /**
+     * @param parameters overriding the defaults of the benchmarks
+     * @return KeedioSource created by SourceFactory from parameters
+     */
+    public static KeedioSource keedioSource(Map<String, String> parameters) {
+        Map<String, String> context = new HashMap<>();
+        context.put("client.source", "ftp");
+        context.put("name.server", "localhost");
+        context.put("user", "benchmark");
+        context.put("password", "benchmark");
+        context.put("port", "21");
+        context.put("buffer.size", "0");
+        context.put("folder", System.getProperty("java.io.tmpdir"));
+        context.putAll(parameters);
+        return new SourceFactory().createKeedioSource(new Context(context));
+    }
+
+    /**
+     * Takes batches without a channel behind, counting the events.
+     */
+    public static class CountingChannelProcessor extends ChannelProcessor {
+
+        private long events;
+
+        public CountingChannelProcessor() {
+            super(null);
+        }
+
+        @Override
+        public void processEvent(Event event) {
+            events++;
+        }
+
+        @Override
+        public void processEventBatch(List<Event> batch) {
+            events += batch.size();
+        }
+
+        public long getEvents() {
+            return events;
+        }
+    }
+}
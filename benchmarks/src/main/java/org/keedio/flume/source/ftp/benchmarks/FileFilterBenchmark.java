@@ -0,0 +1,64 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.keedio.flume.source.ftp.client.filters.KeedioFileFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * KeedioFileFilter.accept over a listing of files, half of them matching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileFilterBenchmark {
+
+    private static final int FILES = 1000;
+
+    @Param({"", ".+\\.csv", "flume_file_[0-9]+\\.csv"})
+    public String pattern;
+
+    private KeedioFileFilter filter;
+    private FTPFile[] listing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filter = new KeedioFileFilter(pattern);
+        listing = new FTPFile[FILES];
+        for (int i = 0; i < FILES; i++) {
+            FTPFile file = new FTPFile();
+            file.setType(FTPFile.FILE_TYPE);
+            file.setName("flume_file_" + i + (i % 2 == 0 ? ".csv" : ".log"));
+            listing[i] = file;
+        }
+    }
+
+    @Benchmark
+    public int accept() {
+        int accepted = 0;
+        for (FTPFile file : listing) {
+            if (filter.accept(file)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
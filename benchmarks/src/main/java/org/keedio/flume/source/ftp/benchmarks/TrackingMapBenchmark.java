@@ -0,0 +1,82 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * KeedioSource.saveMap and loadMap of the map of processed files, with the
+ * tracking store configured by tracking.store. 10M files need a large heap,
+ * given to the forked JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class TrackingMapBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int files;
+
+    @Param({"map", "fingerprint"})
+    public String store;
+
+    private Path folder;
+    private KeedioSource keedioSource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("tracking-benchmark");
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("folder", folder.toString());
+        parameters.put("file.name", "benchmark.ser");
+        parameters.put("tracking.store", store);
+        keedioSource = BenchmarkSources.keedioSource(parameters);
+        keedioSource.makeLocationFile();
+        for (int i = 0; i < files; i++) {
+            keedioSource.getTrackingStore().put("/data/partner" + (i % 100) + "/file_" + i + ".csv", i);
+        }
+        keedioSource.saveMap();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        keedioSource.getTrackingStore().close();
+        Files.deleteIfExists(keedioSource.getAbsolutePath());
+        Files.deleteIfExists(folder);
+    }
+
+    @Benchmark
+    public void saveMap() {
+        keedioSource.saveMap();
+    }
+
+    @Benchmark
+    public long loadMap() throws IOException {
+        keedioSource.getTrackingStore().readSnapshot(keedioSource.getAbsolutePath());
+        return keedioSource.getTrackingStore().size();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.keedio.flume.source.ftp.benchmarks.BenchmarkSources;
+import org.keedio.flume.source.ftp.metrics.SourceCounter;
+import org.keedio.flume.source.ftp.source.utils.DiscoveredFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Source.readStream over an in memory file, by lines or by chunks, plain or
+ * gzip compressed, delivering to a channel processor without channel.
+ * It lives in the package of Source to call readStream, so the code measured
+ * is the one the source runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadStreamBenchmark {
+
+    private static final int FILE_SIZE = 16 * 1024 * 1024;
+
+    @Param({"true", "false"})
+    public boolean flushLines;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    @Param({"100"})
+    public int lineLength;
+
+    private byte[] content;
+    private Source source;
+    private DiscoveredFile<Object> file;
+    private BenchmarkSources.CountingChannelProcessor channel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("flushlines", String.valueOf(flushLines));
+        parameters.put("chunk.size", "1024");
+        if (!"none".equals(compression)) {
+            parameters.put("compressed", compression);
+        }
+
+        source = new Source();
+        source.setKeedioSource(BenchmarkSources.keedioSource(parameters));
+        source.setFtpSourceCounter(new SourceCounter("SOURCE.benchmark"));
+        channel = new BenchmarkSources.CountingChannelProcessor();
+        source.setChannelProcessor(channel);
+
+        file = new DiscoveredFile<Object>(null, "/benchmark", "file.log", 0, FILE_SIZE);
+
+        byte[] lines = lines(FILE_SIZE, lineLength);
+        content = "gzip".equals(compression) ? gzip(lines) : lines;
+    }
+
+    @Benchmark
+    public long readStream() throws Exception {
+        if (!source.readStream(new ByteArrayInputStream(content), file)) {
+            throw new IllegalStateException("readStream failed");
+        }
+        return channel.getEvents();
+    }
+
+    /**
+     * @return size bytes of printable text in lines of about lineLength
+     */
+    static byte[] lines(int size, int lineLength) {
+        Random random = new Random(42);
+        byte[] lines = new byte[size];
+        for (int i = 0; i < size; i++) {
+            lines[i] = (byte) ('a' + random.nextInt(26));
+            if (random.nextInt(lineLength) == 0) {
+                lines[i] = '\n';
+            }
+        }
+        return lines;
+    }
+
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
@@ -5,20 +5,18 @@
 package org.keedio.flume.source.ftp.client;
 
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import org.keedio.flume.source.ftp.client.codec.DecompressorRegistry;
 import org.keedio.flume.source.ftp.client.filters.KeedioFileFilter;
+import org.keedio.flume.source.ftp.client.tracking.MapTrackingStore;
+import org.keedio.flume.source.ftp.client.tracking.TrackingJournal;
+import org.keedio.flume.source.ftp.client.tracking.TrackingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.nio.file.Path;
@@ -40,11 +38,20 @@ public abstract class KeedioSource<T> {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(KeedioSource.class);
       
-    private Map<String, Long> fileList = new HashMap<>();
-    private Set<String> existFileList = new HashSet<>();
+    private TrackingStore trackingStore = new MapTrackingStore();
+    private DecompressorRegistry decompressors;
     private Path pathTohasmap = Paths.get("");
     private Path hasmap = Paths.get("");
     private Path absolutePath = Paths.get("");   
+    private TrackingJournal journal;
+    // content delivered of the member at the size processed of compressed
+    // files, apart from the files so it is not counted as one of them
+    private final TrackingStore memberStore = new MapTrackingStore();
+    private TrackingJournal memberJournal;
+    // held to change the stores and journal the change, and to compact them
+    private final Object trackingLock = new Object();
+    private static final long COMPACTION_MIN_RECORDS = 10000;
+    private static final String MEMBERS_SUFFIX = ".members";
     
     /**
      *
@@ -91,6 +98,21 @@ public abstract class KeedioSource<T> {
      */
     protected Integer runDiscoverDelay;
 
+    /**
+     *
+     */
+    protected boolean runDiscoverAdaptive;
+
+    /**
+     *
+     */
+    protected Integer runDiscoverDelayMin;
+
+    /**
+     *
+     */
+    protected Integer runDiscoverDelayMax;
+
     /**
      *
      */
@@ -131,6 +153,96 @@ public abstract class KeedioSource<T> {
      */
     protected Integer chunkSize;
 
+    /**
+     *
+     */
+    protected Integer batchSize;
+
+    /**
+     *
+     */
+    protected Long batchMaxBytes;
+
+    /**
+     *
+     */
+    protected Long batchLingerMs;
+
+    /**
+     *
+     */
+    protected Long deliveryBackoffMs;
+
+    /**
+     *
+     */
+    protected Long deliveryMaxBackoffMs;
+
+    /**
+     *
+     */
+    protected Long checkpointBytes;
+
+    /**
+     *
+     */
+    protected Long checkpointIntervalMs;
+
+    /**
+     *
+     */
+    protected Pattern multilineStart;
+
+    /**
+     *
+     */
+    protected Pattern multilineContinuation;
+
+    /**
+     *
+     */
+    protected Integer multilineMaxLines;
+
+    /**
+     *
+     */
+    protected Integer multilineMaxBytes;
+
+    /**
+     *
+     */
+    protected Long multilineFlushTimeoutMs;
+
+    /**
+     *
+     */
+    protected Long backoffSleepIncrement;
+
+    /**
+     *
+     */
+    protected Long maxBackoffSleep;
+
+    /**
+     *
+     */
+    protected Integer maxConnections;
+
+    /**
+     *
+     */
+    protected Integer discoveryThreads;
+
+    /**
+     *
+     */
+    protected Integer discoveryQueueSize;
+
+    /**
+     *
+     */
+    protected Integer inflateThreads;
+
     /**
      *
      */
@@ -162,18 +274,50 @@ public abstract class KeedioSource<T> {
 
     /**
      *
-     * @param directory
+     * @param path absolute path of the file, not relative to the current directory
+     * @return
      * @throws IOException
      */
-    public abstract void changeToDirectory(String directory)throws IOException;
+    public abstract InputStream getInputStream(String path) throws IOException;
 
     /**
+     * Retrieve the content of file starting at position. Sources able to resume
+     * a transfer on the server side override this method so the first position
+     * bytes are not sent over the wire; by default they are read and discarded.
      *
-     * @param file
+     * @param path absolute path of the file, not relative to the current directory
+     * @param position offset of the first byte to retrieve
      * @return
      * @throws IOException
      */
-    public abstract InputStream getInputStream(T file ) throws IOException;
+    public InputStream getInputStream(String path, long position) throws IOException {
+        InputStream inputStream = getInputStream(path);
+        if (inputStream != null) {
+            skipFully(inputStream, position);
+        }
+        return inputStream;
+    }
+
+    /**
+     * InputStream.skip may skip less bytes than requested on network streams.
+     *
+     * @param inputStream
+     * @param position number of bytes to skip
+     * @throws IOException
+     */
+    protected void skipFully(InputStream inputStream, long position) throws IOException {
+        long remaining = position;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() == -1) {
+                    throw new IOException("Stream ended " + remaining + " bytes before position " + position);
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
 
     /**
      *
@@ -191,10 +335,10 @@ public abstract class KeedioSource<T> {
 
     /**
      *
-     * @param file
+     * @param path absolute path of the file, not relative to the current directory
      * @return
      */
-    public abstract boolean rm(T file);
+    public abstract boolean rm(String path);
 
     /**
      *
@@ -223,6 +367,19 @@ public abstract class KeedioSource<T> {
      */
     public abstract long getObjectSize(T file);
 
+    /**
+     * Ask the server for the current size of a file. Sizes returned by
+     * getObjectSize come with the listing, this costs a round trip and is
+     * only meant for when the size may have changed since the file was listed.
+     *
+     * @param path absolute path of the file, not relative to the current directory
+     * @return size of the file, or -1 if not supported by the source
+     * @throws IOException
+     */
+    public long statSize(String path) throws IOException {
+        return -1;
+    }
+
     /**
      *
      * @param file
@@ -258,18 +415,194 @@ public abstract class KeedioSource<T> {
     public abstract void setFileType(int fileType) throws IOException;
    
     /**
-     * @void save map of file's names proccesed
+     * Make this connection share the transport of another one instead of
+     * opening its own, for protocols able to multiplex several transfers over
+     * one connection. Must be called before connecting.
+     *
+     * @param owner connection whose transport is shared
+     * @return boolean, false if not supported or owner can not take more users
+     */
+    public boolean shareTransport(KeedioSource owner) {
+        return false;
+    }
+
+    /**
+     * @void save map of file's names proccesed, as a full snapshot. Journal
+     * generations written up to now are not needed anymore and are removed.
+     * Content delivered of members of compressed files is saved next to it.
      */
     public void saveMap() {
-        try {
-            FileOutputStream fileOut = new FileOutputStream(getAbsolutePath().toString());
-            try (ObjectOutputStream out = new ObjectOutputStream(fileOut)) {
-                out.writeObject((HashMap) getFileList());
+        synchronized (trackingLock) {
+            try {
+                if (journal != null) {
+                    journal.compactNow(trackingStore);
+                } else {
+                    trackingStore.writeSnapshot(getAbsolutePath());
+                }
+                if (memberJournal != null) {
+                    memberJournal.compactNow(memberStore);
+                } else if (compressionFormat != null) {
+                    memberStore.writeSnapshot(getMembersPath());
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error saving map IO:", e);
             }
-        } catch (FileNotFoundException e) {
-            LOGGER.error("Error saving map File", e);
-        } catch (IOException e) {
-            LOGGER.error("Error saving map IO:", e);
+        }
+    }
+
+    /**
+     * Record the size processed of a file, appending it to the journal
+     * instead of saving the whole map. The file is marked as found in the
+     * current poll. The change and its record are made under the lock of
+     * compactions, so none falls between the copy and the roll of one.
+     *
+     * @param path of the file
+     * @param size processed
+     */
+    public void trackFile(String path, long size) {
+        synchronized (trackingLock) {
+            trackingStore.put(path, size);
+            trackingStore.markSeen(path);
+            if (journal != null) {
+                try {
+                    journal.put(path, size);
+                } catch (IOException e) {
+                    LOGGER.error("Error appending to journal of map, saving full map", e);
+                    saveMap();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the size processed of a compressed file, up to the end of its
+     * last member delivered, and the content of the next member delivered
+     * already, kept in a store of members apart from the map.
+     *
+     * @param path of the file
+     * @param size processed, offset of the end of a member
+     * @param memberDelivered bytes of content of the member at size
+     * delivered, 0 if none
+     */
+    public void trackFile(String path, long size, long memberDelivered) {
+        synchronized (trackingLock) {
+            trackFile(path, size);
+            try {
+                if (memberDelivered > 0) {
+                    memberStore.put(path, memberDelivered);
+                    memberStore.markSeen(path);
+                    if (memberJournal != null) {
+                        memberJournal.put(path, memberDelivered);
+                    }
+                } else if (memberStore.get(path) >= 0) {
+                    memberStore.remove(path);
+                    if (memberJournal != null) {
+                        memberJournal.remove(path);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error appending to journal of map, saving full map", e);
+                saveMap();
+            }
+        }
+    }
+
+    /**
+     * @param path of a compressed file
+     * @return bytes of content of the member at the size processed of the
+     * file delivered already, 0 if none
+     */
+    public long getMemberDelivered(String path) {
+        return Math.max(0, memberStore.get(path));
+    }
+
+    /**
+     * Mark a file as found in the current poll, along with the content of
+     * its member delivered if it is compressed.
+     *
+     * @param path of the file
+     */
+    public void markSeen(String path) {
+        trackingStore.markSeen(path);
+        if (compressionFormat != null && memberStore.get(path) >= 0) {
+            memberStore.markSeen(path);
+        }
+    }
+
+    /**
+     * Forget a file was found in the current poll, so it is removed, along
+     * with the content of its member delivered, and discovered again as new.
+     *
+     * @param path of the file
+     */
+    public void unmarkSeen(String path) {
+        trackingStore.unmarkSeen(path);
+        if (compressionFormat != null) {
+            memberStore.unmarkSeen(path);
+        }
+    }
+
+    /**
+     * @return path of the snapshot of members, next to the map
+     */
+    private Path getMembersPath() {
+        return getAbsolutePath().resolveSibling(getAbsolutePath().getFileName() + MEMBERS_SUFFIX);
+    }
+
+    /**
+     * Make sure journal records reach the file, and compact the journal into
+     * the snapshot in background once it holds more records than the map has
+     * files (or COMPACTION_MIN_RECORDS), so its size stays proportional to the map.
+     */
+    public void syncMap() {
+        if (journal == null) {
+            saveMap();
+            return;
+        }
+        synchronized (trackingLock) {
+            try {
+                syncJournal(journal, trackingStore);
+                if (memberJournal != null) {
+                    syncJournal(memberJournal, memberStore);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error syncing journal of map, saving full map", e);
+                saveMap();
+            }
+        }
+    }
+
+    private static void syncJournal(TrackingJournal journal, TrackingStore store) throws IOException {
+        journal.flush();
+        if (journal.getRecords() >= Math.max(COMPACTION_MIN_RECORDS, store.size()) && !journal.isCompacting()) {
+            journal.compact(store);
+        }
+    }
+
+    /**
+     * Save map and release the journal.
+     */
+    public void closeMap() {
+        synchronized (trackingLock) {
+            saveMap();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOGGER.error("Error closing journal of map", e);
+                }
+                journal = null;
+            }
+            if (memberJournal != null) {
+                try {
+                    memberJournal.close();
+                } catch (IOException e) {
+                    LOGGER.error("Error closing journal of members", e);
+                }
+                memberJournal = null;
+            }
+            trackingStore.close();
+            memberStore.close();
         }
     }
 
@@ -280,45 +613,77 @@ public abstract class KeedioSource<T> {
      * @throws java.io.IOException
      */
     public Map<String, Long> loadMap(String name) throws ClassNotFoundException, IOException {
-        FileInputStream fileIn = new FileInputStream(name);
-        Map map = new HashMap<>();
-        try (ObjectInputStream in = new ObjectInputStream(fileIn)) {
-            map = (HashMap) in.readObject();
-        }
-        return map;
+        return MapTrackingStore.readMap(Paths.get(name));
     }
 
     /**
-     * @void, delete file from hashmaps if deleted from server
+     * @void, delete file from hashmaps if deleted from server, and start
+     * a new poll
      */
     public void cleanList() {
-        for (Iterator<String> iter = this.getFileList().keySet().iterator(); iter.hasNext();) {
-            final String filename = iter.next();
-            if (!(existFileList.contains(filename))) {
-                iter.remove();
+        synchronized (trackingLock) {
+            try {
+                trackingStore.removeUnseen(journal);
+                if (compressionFormat != null) {
+                    memberStore.removeUnseen(memberJournal);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error appending to journal of map", e);
             }
         }
     }
 
     /**
-     * @void, check if there are previous files to load of an old session
+     * @void, check if there are previous files to load of an old session,
+     * the snapshot of the map plus the changes recorded in its journal
      */
     public void checkPreviousMap() {
         Path file1 = makeLocationFile();
         try {
+            if (journal == null) {
+                journal = new TrackingJournal(file1);
+            }
+            journal.awaitCompaction();
             if (Files.exists(file1)) {
-                setFileList(loadMap(file1.toString()));
+                trackingStore.readSnapshot(file1);
                 LOGGER.info("Found previous map of files flumed: " + file1.toString());
             } else {
                 LOGGER.info("Not found preivous map of files flumed");
-
+                if (trackingStore instanceof MapTrackingStore && getFileList() == null) {
+                    setFileList(new HashMap<String, Long>());
+                }
+            }
+            long replayed = journal.replay(trackingStore);
+            if (replayed > 0) {
+                LOGGER.info("Replayed " + replayed + " changes from journal of map " + file1.toString());
+            }
+            if (compressionFormat != null) {
+                checkPreviousMembers();
             }
 
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             LOGGER.info("Exception thrown checking previous map ", e);
         }
     }
 
+    /**
+     * Load the content delivered of members of a previous session, from
+     * their snapshot plus the changes recorded in their journal.
+     *
+     * @throws IOException
+     */
+    private void checkPreviousMembers() throws IOException {
+        Path members = getMembersPath();
+        if (memberJournal == null) {
+            memberJournal = new TrackingJournal(members);
+        }
+        memberJournal.awaitCompaction();
+        if (Files.exists(members)) {
+            memberStore.readSnapshot(members);
+        }
+        memberJournal.replay(memberStore);
+    }
+
     /**
      * @return boolean, folder where to save data exists
      */
@@ -445,6 +810,48 @@ public abstract class KeedioSource<T> {
         this.runDiscoverDelay = runDiscoverDelay;
     }
 
+    /**
+     * @return true if the discover delay adapts to the arrival of files
+     */
+    public boolean isRunDiscoverAdaptive() {
+        return runDiscoverAdaptive;
+    }
+
+    /**
+     * @param runDiscoverAdaptive the runDiscoverAdaptive to set
+     */
+    public void setRunDiscoverAdaptive(boolean runDiscoverAdaptive) {
+        this.runDiscoverAdaptive = runDiscoverAdaptive;
+    }
+
+    /**
+     * @return the adaptive discover delay while files keep arriving
+     */
+    public int getRunDiscoverDelayMin() {
+        return runDiscoverDelayMin;
+    }
+
+    /**
+     * @param runDiscoverDelayMin the runDiscoverDelayMin to set
+     */
+    public void setRunDiscoverDelayMin(int runDiscoverDelayMin) {
+        this.runDiscoverDelayMin = runDiscoverDelayMin;
+    }
+
+    /**
+     * @return the adaptive discover delay while directories are idle
+     */
+    public int getRunDiscoverDelayMax() {
+        return runDiscoverDelayMax;
+    }
+
+    /**
+     * @param runDiscoverDelayMax the runDiscoverDelayMax to set
+     */
+    public void setRunDiscoverDelayMax(int runDiscoverDelayMax) {
+        this.runDiscoverDelayMax = runDiscoverDelayMax;
+    }
+
     /**
      * @return the workingDirectory
      */
@@ -459,32 +866,74 @@ public abstract class KeedioSource<T> {
         this.workingDirectory = workingDirectory;
     }
 
+    /**
+     * @return the trackingStore
+     */
+    public TrackingStore getTrackingStore() {
+        return trackingStore;
+    }
+
+    /**
+     * @param trackingStore the trackingStore to set
+     */
+    public void setTrackingStore(TrackingStore trackingStore) {
+        this.trackingStore = trackingStore;
+    }
+
+    /**
+     * @return the decompressors, the default ones if none was set
+     */
+    public synchronized DecompressorRegistry getDecompressors() {
+        if (decompressors == null) {
+            decompressors = DecompressorRegistry.withDefaults();
+        }
+        return decompressors;
+    }
+
+    /**
+     * @param decompressors the decompressors to set
+     */
+    public synchronized void setDecompressors(DecompressorRegistry decompressors) {
+        this.decompressors = decompressors;
+    }
+
     /**
      * @return the fileList
      */
     public Map<String, Long> getFileList() {
-        return fileList;
+        return getMapTrackingStore().getFileList();
     }
 
     /**
      * @param fileList the fileList to set
      */
     public void setFileList(Map<String, Long> fileList) {
-        this.fileList = fileList;
+        getMapTrackingStore().setFileList(fileList);
     }
 
     /**
      * @return the existFileList
      */
     public Set<String> getExistFileList() {
-        return existFileList;
+        return getMapTrackingStore().getExistFileList();
     }
 
     /**
      * @param existFileList the existFileList to set
      */
     public void setExistFileList(Set<String> existFileList) {
-        this.existFileList = existFileList;
+        getMapTrackingStore().setExistFileList(existFileList);
+    }
+
+    /**
+     * @return trackingStore, if paths are kept in a map
+     */
+    private MapTrackingStore getMapTrackingStore() {
+        if (!(trackingStore instanceof MapTrackingStore)) {
+            throw new IllegalStateException("Map of files is not kept by "
+                    + trackingStore.getClass().getSimpleName());
+        }
+        return (MapTrackingStore) trackingStore;
     }
 
     /**
@@ -603,6 +1052,267 @@ public abstract class KeedioSource<T> {
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * @return max number of events delivered in one channel transaction
+     */
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the batchSize to set
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return max bytes of event bodies delivered in one channel transaction
+     */
+    public Long getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    /**
+     * @param batchMaxBytes the batchMaxBytes to set
+     */
+    public void setBatchMaxBytes(Long batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    /**
+     * @return max time in ms an event waits for its batch to be delivered
+     */
+    public Long getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    /**
+     * @param batchLingerMs the batchLingerMs to set
+     */
+    public void setBatchLingerMs(Long batchLingerMs) {
+        this.batchLingerMs = batchLingerMs;
+    }
+
+    /**
+     * @return wait in ms before retrying a batch the channel did not take
+     */
+    public Long getDeliveryBackoffMs() {
+        return deliveryBackoffMs;
+    }
+
+    /**
+     * @param deliveryBackoffMs the deliveryBackoffMs to set
+     */
+    public void setDeliveryBackoffMs(Long deliveryBackoffMs) {
+        this.deliveryBackoffMs = deliveryBackoffMs;
+    }
+
+    /**
+     * @return max wait in ms between retries of a batch
+     */
+    public Long getDeliveryMaxBackoffMs() {
+        return deliveryMaxBackoffMs;
+    }
+
+    /**
+     * @param deliveryMaxBackoffMs the deliveryMaxBackoffMs to set
+     */
+    public void setDeliveryMaxBackoffMs(Long deliveryMaxBackoffMs) {
+        this.deliveryMaxBackoffMs = deliveryMaxBackoffMs;
+    }
+
+    /**
+     * @return bytes delivered between checkpoints of a file being transferred
+     */
+    public Long getCheckpointBytes() {
+        return checkpointBytes;
+    }
+
+    /**
+     * @param checkpointBytes the checkpointBytes to set
+     */
+    public void setCheckpointBytes(Long checkpointBytes) {
+        this.checkpointBytes = checkpointBytes;
+    }
+
+    /**
+     * @return time in ms between checkpoints of a file being transferred
+     */
+    public Long getCheckpointIntervalMs() {
+        return checkpointIntervalMs;
+    }
+
+    /**
+     * @param checkpointIntervalMs the checkpointIntervalMs to set
+     */
+    public void setCheckpointIntervalMs(Long checkpointIntervalMs) {
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    /**
+     * @return pattern found in the first line of a multiline record, or null
+     */
+    public Pattern getMultilineStart() {
+        return multilineStart;
+    }
+
+    /**
+     * @param multilineStart the multilineStart to set
+     */
+    public void setMultilineStart(Pattern multilineStart) {
+        this.multilineStart = multilineStart;
+    }
+
+    /**
+     * @return pattern found in the other lines of a multiline record, or null
+     */
+    public Pattern getMultilineContinuation() {
+        return multilineContinuation;
+    }
+
+    /**
+     * @param multilineContinuation the multilineContinuation to set
+     */
+    public void setMultilineContinuation(Pattern multilineContinuation) {
+        this.multilineContinuation = multilineContinuation;
+    }
+
+    /**
+     * @return true if lines are joined into multiline records
+     */
+    public boolean isMultiline() {
+        return multilineStart != null || multilineContinuation != null;
+    }
+
+    /**
+     * @return max lines of a multiline record, 0 for no limit
+     */
+    public int getMultilineMaxLines() {
+        return multilineMaxLines;
+    }
+
+    /**
+     * @param multilineMaxLines the multilineMaxLines to set
+     */
+    public void setMultilineMaxLines(Integer multilineMaxLines) {
+        this.multilineMaxLines = multilineMaxLines;
+    }
+
+    /**
+     * @return max bytes of a multiline record, 0 for no limit
+     */
+    public int getMultilineMaxBytes() {
+        return multilineMaxBytes;
+    }
+
+    /**
+     * @param multilineMaxBytes the multilineMaxBytes to set
+     */
+    public void setMultilineMaxBytes(Integer multilineMaxBytes) {
+        this.multilineMaxBytes = multilineMaxBytes;
+    }
+
+    /**
+     * @return time in ms a file must be left unmodified before its last
+     * multiline record is delivered, 0 to deliver it at the end of every
+     * transfer
+     */
+    public long getMultilineFlushTimeoutMs() {
+        return multilineFlushTimeoutMs;
+    }
+
+    /**
+     * @param multilineFlushTimeoutMs the multilineFlushTimeoutMs to set
+     */
+    public void setMultilineFlushTimeoutMs(Long multilineFlushTimeoutMs) {
+        this.multilineFlushTimeoutMs = multilineFlushTimeoutMs;
+    }
+
+    /**
+     * @return increment in ms of the runner sleep while no file is queued
+     */
+    public Long getBackoffSleepIncrement() {
+        return backoffSleepIncrement;
+    }
+
+    /**
+     * @param backoffSleepIncrement the backoffSleepIncrement to set
+     */
+    public void setBackoffSleepIncrement(Long backoffSleepIncrement) {
+        this.backoffSleepIncrement = backoffSleepIncrement;
+    }
+
+    /**
+     * @return max sleep in ms of the runner while no file is queued
+     */
+    public Long getMaxBackoffSleep() {
+        return maxBackoffSleep;
+    }
+
+    /**
+     * @param maxBackoffSleep the maxBackoffSleep to set
+     */
+    public void setMaxBackoffSleep(Long maxBackoffSleep) {
+        this.maxBackoffSleep = maxBackoffSleep;
+    }
+
+    /**
+     * @return max number of connections transferring files at the same time
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections the maxConnections to set
+     */
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return number of directories listed at the same time
+     */
+    public int getDiscoveryThreads() {
+        return discoveryThreads;
+    }
+
+    /**
+     * @param discoveryThreads the discoveryThreads to set
+     */
+    public void setDiscoveryThreads(Integer discoveryThreads) {
+        this.discoveryThreads = discoveryThreads;
+    }
+
+    /**
+     * @return max directories waiting to be listed by discovery threads
+     */
+    public int getDiscoveryQueueSize() {
+        return discoveryQueueSize;
+    }
+
+    /**
+     * @param discoveryQueueSize the discoveryQueueSize to set
+     */
+    public void setDiscoveryQueueSize(Integer discoveryQueueSize) {
+        this.discoveryQueueSize = discoveryQueueSize;
+    }
+
+    /**
+     * @return number of BGZF blocks of a file inflated at the same time
+     */
+    public int getInflateThreads() {
+        return inflateThreads;
+    }
+
+    /**
+     * @param inflateThreads the inflateThreads to set
+     */
+    public void setInflateThreads(Integer inflateThreads) {
+        this.inflateThreads = inflateThreads;
+    }
+
     /**
      *
      * @param dirToList
@@ -0,0 +1,150 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.flume.Context;
+import org.keedio.flume.source.ftp.client.factory.SourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of connections to the server, each one a KeedioSource with its own
+ * client, so several files can be transferred at the same time. Connections
+ * are built by SourceFactory.createConnection, only configured to connect:
+ * files are tracked and decoded by the source owning the pool. They are
+ * created on demand up to maxConnections and reconnected on borrow if a
+ * previous user invalidated them.
+ *
+ * Protocols able to multiplex, as SFTP with its channels, make new connections
+ * share the transport of previous ones while it takes more users.
+ *
+ * A connection must be used by one thread at a time: borrow it, then release
+ * or invalidate it when done.
+ */
+public class KeedioSourcePool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeedioSourcePool.class);
+
+    private final SourceFactory sourceFactory = new SourceFactory();
+    private final Context context;
+    private final int maxConnections;
+    private final BlockingQueue<KeedioSource> idle = new LinkedBlockingQueue<>();
+    private final List<KeedioSource> connections = new ArrayList<>();
+    private KeedioSource transportOwner;
+
+    /**
+     *
+     * @param context of the source, every connection is configured from it
+     * @param maxConnections max number of connections open at the same time
+     */
+    public KeedioSourcePool(Context context, int maxConnections) {
+        this(context, maxConnections, null);
+    }
+
+    /**
+     *
+     * @param context of the source, every connection is configured from it
+     * @param maxConnections max number of connections open at the same time
+     * @param transportOwner connection whose transport new ones try to share
+     *                       first, may be null
+     */
+    public KeedioSourcePool(Context context, int maxConnections, KeedioSource transportOwner) {
+        this.context = context;
+        this.maxConnections = maxConnections;
+        this.transportOwner = transportOwner;
+    }
+
+    /**
+     * Take an idle connection, create a new one if none is idle and the pool
+     * is not full, or wait for one to be released.
+     *
+     * @return KeedioSource connected to the server
+     * @throws IOException if the connection could not be established
+     * @throws InterruptedException
+     */
+    public KeedioSource borrow() throws IOException, InterruptedException {
+        KeedioSource keedioSource = idle.poll();
+        if (keedioSource == null) {
+            keedioSource = create();
+        }
+        if (keedioSource == null) {
+            keedioSource = idle.take();
+        }
+
+        if (!keedioSource.isConnected() && !keedioSource.connect()) {
+            invalidate(keedioSource);
+            throw new IOException("Could not connect to " + keedioSource.getServer());
+        }
+        return keedioSource;
+    }
+
+    /**
+     * Give back a connection that is still usable.
+     *
+     * @param keedioSource
+     */
+    public void release(KeedioSource keedioSource) {
+        idle.offer(keedioSource);
+    }
+
+    /**
+     * Give back a connection whose state is unknown after an error, it will
+     * be reconnected before being borrowed again.
+     *
+     * @param keedioSource
+     */
+    public void invalidate(KeedioSource keedioSource) {
+        if (keedioSource.isConnected()) {
+            keedioSource.disconnect();
+        }
+        keedioSource.setConnected(false);
+        idle.offer(keedioSource);
+    }
+
+    /**
+     * Disconnect every connection of the pool.
+     */
+    public synchronized void close() {
+        for (KeedioSource keedioSource : connections) {
+            if (keedioSource.isConnected()) {
+                keedioSource.disconnect();
+            }
+        }
+        connections.clear();
+        idle.clear();
+    }
+
+    /**
+     * @return the maxConnections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return a new connection not connected yet, or null if the pool is full
+     */
+    private synchronized KeedioSource create() {
+        if (connections.size() >= maxConnections) {
+            return null;
+        }
+        KeedioSource keedioSource = sourceFactory.createConnection(context);
+        connections.add(keedioSource);
+        if (transportOwner != null && keedioSource.shareTransport(transportOwner)) {
+            LOGGER.info("Opening connection " + connections.size() + " of " + maxConnections
+                    + " sharing transport to " + keedioSource.getServer());
+        } else {
+            transportOwner = keedioSource;
+            LOGGER.info("Opening connection " + connections.size() + " of " + maxConnections + " to "
+                    + keedioSource.getServer());
+        }
+        return keedioSource;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base of the decompressors built on commons-compress. The compressed stream
+ * is buffered before being decoded, as some of the codecs read it a byte at
+ * a time.
+ */
+public abstract class AbstractDecompressor implements Decompressor {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final String[] extensions;
+
+    /**
+     *
+     * @param name of the codec
+     * @param extensions of the files compressed with it
+     */
+    protected AbstractDecompressor(String name, String... extensions) {
+        this.name = name;
+        this.extensions = extensions;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return extensions.clone();
+    }
+
+    @Override
+    public InputStream open(InputStream in) throws IOException {
+        return decode(new BufferedInputStream(in, BUFFER_SIZE));
+    }
+
+    /**
+     * @param in buffered compressed stream
+     * @return decompressed stream
+     * @throws IOException
+     */
+    protected abstract InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,29 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * bzip2, concatenated streams included.
+ */
+public class BZip2Decompressor extends AbstractDecompressor {
+
+    public BZip2Decompressor() {
+        super("bzip2", "bz2");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return BZip2CompressorInputStream.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        return new BZip2CompressorInputStream(in, true);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the compressed stream of a file while it is read, so files of any
+ * size are decompressed with a bounded amount of memory.
+ *
+ * Implementations need a public constructor without arguments to be given
+ * by class name in compressed.codecs.
+ */
+public interface Decompressor {
+
+    /**
+     * @return name of the codec, as given in compressed
+     */
+    String getName();
+
+    /**
+     * @return extensions of the files compressed with the codec, without dot
+     */
+    String[] getExtensions();
+
+    /**
+     * @param head first bytes of a stream
+     * @param length of head read, may be shorter than head
+     * @return true if head is the signature of the codec
+     */
+    boolean matches(byte[] head, int length);
+
+    /**
+     * @param in compressed stream
+     * @return stream of the decompressed content, closing in when closed
+     * @throws IOException if in is not valid for the codec or the codec is
+     * not available
+     */
+    InputStream open(InputStream in) throws IOException;
+}
@@ -0,0 +1,182 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Decompressors known by a source, looked up by the name of their codec or
+ * by the extension of a file. A codec registered with the name or the
+ * extension of another one replaces it.
+ */
+public class DecompressorRegistry {
+
+    /**
+     * Value of compressed selecting the codec by the extension of each file.
+     */
+    public static final String EXTENSION = "extension";
+
+    /**
+     * Value of compressed selecting the codec by the first bytes of each
+     * file.
+     */
+    public static final String AUTO = "auto";
+
+    /**
+     * Bytes read to detect the codec of a stream, enough for the longest
+     * signature known, the 6 bytes of xz.
+     */
+    static final int HEAD_SIZE = 16;
+
+    private final Map<String, Decompressor> byName = new LinkedHashMap<>();
+    private final Map<String, Decompressor> byExtension = new LinkedHashMap<>();
+
+    /**
+     * @return registry of gzip, bzip2, xz, zstd, lz4 and zip
+     */
+    public static DecompressorRegistry withDefaults() {
+        DecompressorRegistry registry = new DecompressorRegistry();
+        registry.register(new GzipDecompressor());
+        registry.register(new BZip2Decompressor());
+        registry.register(new XzDecompressor());
+        registry.register(new ZstdDecompressor());
+        registry.register(new Lz4Decompressor());
+        registry.register(new ZipDecompressor());
+        return registry;
+    }
+
+    /**
+     * @param decompressor to add
+     */
+    public synchronized void register(Decompressor decompressor) {
+        byName.put(decompressor.getName().toLowerCase(), decompressor);
+        for (String extension : decompressor.getExtensions()) {
+            byExtension.put(extension.toLowerCase(), decompressor);
+        }
+    }
+
+    /**
+     * @param name of a codec, or one of its extensions
+     * @return decompressor of the codec, null if unknown
+     */
+    public synchronized Decompressor get(String name) {
+        String key = name.toLowerCase().trim();
+        Decompressor decompressor = byName.get(key);
+        return decompressor != null ? decompressor : byExtension.get(key);
+    }
+
+    /**
+     * @param fileName name of a file
+     * @return decompressor for the extension of fileName, null if it has none
+     * known
+     */
+    public synchronized Decompressor forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return null;
+        }
+        return byExtension.get(fileName.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Peek the first bytes of in, leaving it at the same position.
+     *
+     * @param in stream supporting mark
+     * @return decompressor whose signature in starts with, null if none
+     * @throws IOException
+     */
+    public synchronized Decompressor detect(InputStream in) throws IOException {
+        byte[] head = new byte[HEAD_SIZE];
+        int length = peek(in, head);
+        for (Decompressor decompressor : byName.values()) {
+            if (decompressor.matches(head, length)) {
+                return decompressor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Peek the first bytes of in, leaving it at the same position.
+     *
+     * @param decompressor codec expected
+     * @param in stream supporting mark
+     * @return true if in starts with the signature of decompressor, as a new
+     * stream of the codec does
+     * @throws IOException
+     */
+    public boolean startsStream(Decompressor decompressor, InputStream in) throws IOException {
+        byte[] head = new byte[HEAD_SIZE];
+        return decompressor.matches(head, peek(in, head));
+    }
+
+    /**
+     * @param in stream supporting mark, left at the same position
+     * @param head filled with the first bytes of in
+     * @return bytes read into head
+     * @throws IOException
+     */
+    private static int peek(InputStream in, byte[] head) throws IOException {
+        in.mark(head.length);
+        int length = IOUtils.readFully(in, head);
+        in.reset();
+        return length;
+    }
+
+    /**
+     * Decompressor for a file according to the compressed setting, detecting
+     * it from the first bytes of its stream in auto.
+     *
+     * @param format value of compressed: null for none, auto, extension, or
+     * the name of a codec
+     * @param fileName name of the file
+     * @param in stream of the file, must support mark in auto
+     * @return decompressor of the file, null if it is read as is
+     * @throws IOException if format is not a known codec, or in could not be
+     * read
+     */
+    public Decompressor select(String format, String fileName, InputStream in) throws IOException {
+        if (AUTO.equals(format)) {
+            return detect(in);
+        }
+        return select(format, fileName);
+    }
+
+    /**
+     * Decompressor for a file according to the compressed setting.
+     *
+     * @param format value of compressed: null for none, extension, or the
+     * name of a codec
+     * @param fileName name of the file
+     * @return decompressor of the file, null if it is read as is
+     * @throws IOException if format is not a known codec
+     */
+    public Decompressor select(String format, String fileName) throws IOException {
+        if (format == null) {
+            return null;
+        }
+        if (EXTENSION.equals(format)) {
+            return forFileName(fileName);
+        }
+        Decompressor decompressor = get(format);
+        if (decompressor == null) {
+            throw new IOException("Unsupported compression format specified: " + format);
+        }
+        return decompressor;
+    }
+
+    /**
+     * @return names of the codecs registered
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(byName.keySet());
+    }
+}
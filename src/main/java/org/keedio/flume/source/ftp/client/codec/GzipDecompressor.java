@@ -0,0 +1,31 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+
+/**
+ * gzip, every member of the file is decoded one after another by a
+ * GzipMemberInputStream.
+ */
+public class GzipDecompressor extends AbstractDecompressor {
+
+    public GzipDecompressor() {
+        super("gzip", "gz");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return GzipCompressorInputStream.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        return new GzipMemberInputStream(in);
+    }
+}
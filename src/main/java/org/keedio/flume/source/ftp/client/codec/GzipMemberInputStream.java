@@ -0,0 +1,322 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Decompressed content of a gzip stream of any number of members, decoded
+ * one member after another while keeping where each of them ends, both in
+ * the compressed stream and in the decompressed content.
+ *
+ * A reader that delivers the content tells it with commit; the stream then
+ * keeps the last member boundary at or before the content delivered as the
+ * point to resume from: a new stream retrieved from the compressed offset of
+ * that boundary, skipping the content of the member delivered already,
+ * sends every record once, and members appended to the file later are
+ * decoded without reading the previous ones again.
+ *
+ * With inflaters set, BGZF blocks (members written by bgzip, whose header
+ * holds their compressed size) are read ahead and inflated on the pool,
+ * their content returned in the order of the file. Other members are still
+ * decoded one after another, as their end is only known decoding them.
+ */
+public class GzipMemberInputStream extends InputStream {
+
+    /**
+     * Boundaries kept beyond the content delivered; older ones are dropped,
+     * which only moves the point to resume from less far.
+     */
+    static final int MAX_BOUNDARIES = 1024;
+
+    /**
+     * Blocks read ahead for each inflater thread.
+     */
+    static final int READ_AHEAD_PER_THREAD = 4;
+
+    /**
+     * Bytes of a BGZF header: gzip header with the extra field BC first.
+     */
+    static final int BGZF_HEADER_SIZE = 18;
+
+    /**
+     * Most content a BGZF block holds.
+     */
+    static final int BGZF_MAX_CONTENT = 65536;
+
+    private final CountingInputStream in;
+    private final Deque<long[]> boundaries = new ArrayDeque<>();
+    private GzipCompressorInputStream member;
+    private long output;
+    private long resumeOffset;
+    private long resumeOutput;
+    private boolean finished;
+    private ExecutorService inflaters;
+    private int readAhead;
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private Block block;
+    private int blockPosition;
+    private IOException truncated;
+
+    /**
+     *
+     * @param in compressed stream, starting at a member, supporting mark
+     */
+    public GzipMemberInputStream(InputStream in) {
+        this.in = new CountingInputStream(in);
+    }
+
+    /**
+     * Inflate BGZF blocks on a pool, set before the first read.
+     *
+     * @param inflaters pool inflating the blocks
+     * @param threads of the pool, blocks are read ahead to keep them busy
+     */
+    public void setInflaters(ExecutorService inflaters, int threads) {
+        this.inflaters = inflaters;
+        this.readAhead = threads * READ_AHEAD_PER_THREAD;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!finished) {
+            if (block != null) {
+                int read = Math.min(len, block.content.length - blockPosition);
+                if (read > 0) {
+                    System.arraycopy(block.content, blockPosition, b, off, read);
+                    blockPosition += read;
+                    output += read;
+                    return read;
+                }
+                addBoundary(block.compressedEnd);
+                block = null;
+            }
+            if (member == null) {
+                readAhead();
+                if (!blocks.isEmpty()) {
+                    block = blocks.removeFirst();
+                    block.content = block.await();
+                    blockPosition = 0;
+                    continue;
+                }
+                if (truncated != null) {
+                    throw truncated;
+                }
+                in.mark(1);
+                if (in.read() == -1) {
+                    finished = true;
+                    break;
+                }
+                in.reset();
+                member = new GzipCompressorInputStream(in, false);
+            }
+            int read = member.read(b, off, len);
+            if (read > 0) {
+                output += read;
+                return read;
+            }
+            if (read == -1) {
+                // the member left in right after its trailer
+                member = null;
+                addBoundary(in.getCount());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read the BGZF blocks following in and queue their inflation, until
+     * enough are queued or a member of another kind is found.
+     */
+    private void readAhead() throws IOException {
+        byte[] header = new byte[BGZF_HEADER_SIZE];
+        while (inflaters != null && truncated == null && blocks.size() < readAhead) {
+            in.mark(BGZF_HEADER_SIZE);
+            int length = IOUtils.readFully(in, header);
+            in.reset();
+            int size = length == BGZF_HEADER_SIZE ? bgzfBlockSize(header) : -1;
+            if (size == -1) {
+                return;
+            }
+            final byte[] compressed = new byte[size];
+            if (IOUtils.readFully(in, compressed) < size) {
+                // the block is still being written, fail once the previous ones are read
+                truncated = new EOFException("Truncated BGZF block at " + in.getCount());
+                return;
+            }
+            blocks.addLast(new Block(inflaters.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return inflate(compressed);
+                }
+            }), in.getCount()));
+        }
+    }
+
+    private void addBoundary(long compressedEnd) {
+        boundaries.addLast(new long[] {compressedEnd, output});
+        if (boundaries.size() > MAX_BOUNDARIES) {
+            boundaries.removeFirst();
+        }
+    }
+
+    /**
+     * @param header first bytes of a member
+     * @return size of the member if it is a BGZF block, -1 otherwise
+     */
+    static int bgzfBlockSize(byte[] header) {
+        if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8 || header[3] != 4
+            || uint16(header, 10) < 6 || header[12] != 'B' || header[13] != 'C' || uint16(header, 14) != 2) {
+            return -1;
+        }
+        return uint16(header, 16) + 1;
+    }
+
+    /**
+     * Inflate a BGZF block and check its trailer.
+     *
+     * @param compressed whole block, header and trailer included
+     * @return content of the block
+     * @throws IOException if the block is corrupt
+     */
+    static byte[] inflate(byte[] compressed) throws IOException {
+        int start = 12 + uint16(compressed, 10);
+        int end = compressed.length - 8;
+        if (end < start) {
+            throw new IOException("Corrupt BGZF block of " + compressed.length + " bytes");
+        }
+        long crc = uint32(compressed, end);
+        long size = uint32(compressed, end + 4);
+        if (size > BGZF_MAX_CONTENT) {
+            throw new IOException("Corrupt BGZF block of " + compressed.length + " bytes, content of " + size
+                + " bytes");
+        }
+        // one byte more, so the end of the deflate stream is reached also for empty blocks
+        byte[] content = new byte[(int) size + 1];
+        int length = 0;
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed, start, end - start);
+            while (!inflater.finished()) {
+                int read = inflater.inflate(content, length, content.length - length);
+                if (read == 0 && !inflater.finished()
+                    && (inflater.needsInput() || inflater.needsDictionary() || length == content.length)) {
+                    throw new IOException("Corrupt BGZF block of " + compressed.length + " bytes");
+                }
+                length += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF block of " + compressed.length + " bytes", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 check = new CRC32();
+        check.update(content, 0, length);
+        if (length != size || check.getValue() != crc) {
+            throw new IOException("Corrupt BGZF block of " + compressed.length + " bytes, trailer mismatch");
+        }
+        return length == content.length ? content : Arrays.copyOf(content, length);
+    }
+
+    private static int uint16(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8;
+    }
+
+    private static long uint32(byte[] b, int offset) {
+        return uint16(b, offset) | (long) uint16(b, offset + 2) << 16;
+    }
+
+    /**
+     * Move the point to resume from to the last member boundary at or before
+     * delivered.
+     *
+     * @param delivered bytes of content delivered so far
+     */
+    public void commit(long delivered) {
+        while (!boundaries.isEmpty() && boundaries.peekFirst()[1] <= delivered) {
+            long[] boundary = boundaries.removeFirst();
+            resumeOffset = boundary[0];
+            resumeOutput = boundary[1];
+        }
+    }
+
+    /**
+     * @return bytes of the compressed stream up to the point to resume from
+     */
+    public long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    /**
+     * @return bytes of content up to the point to resume from
+     */
+    public long getResumeOutput() {
+        return resumeOutput;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Block queued : blocks) {
+            queued.inflated.cancel(false);
+        }
+        blocks.clear();
+        in.close();
+    }
+
+    /**
+     * A BGZF block queued for inflation.
+     */
+    private static class Block {
+
+        private final Future<byte[]> inflated;
+        private final long compressedEnd;
+        private byte[] content;
+
+        Block(Future<byte[]> inflated, long compressedEnd) {
+            this.inflated = inflated;
+            this.compressedEnd = compressedEnd;
+        }
+
+        byte[] await() throws IOException {
+            try {
+                return inflated.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted inflating a BGZF block");
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+
+/**
+ * LZ4 frame format, as written by the lz4 command, concatenated frames
+ * included.
+ */
+public class Lz4Decompressor extends AbstractDecompressor {
+
+    public Lz4Decompressor() {
+        super("lz4", "lz4");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return FramedLZ4CompressorInputStream.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        return new FramedLZ4CompressorInputStream(in, true);
+    }
+}
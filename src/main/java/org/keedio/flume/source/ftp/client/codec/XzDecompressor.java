@@ -0,0 +1,33 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
+
+/**
+ * xz, concatenated streams included. Needs the xz library of tukaani.
+ */
+public class XzDecompressor extends AbstractDecompressor {
+
+    public XzDecompressor() {
+        super("xz", "xz");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return XZCompressorInputStream.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        if (!XZUtils.isXZCompressionAvailable()) {
+            throw new IOException("xz decompression needs org.tukaani:xz in the classpath");
+        }
+        return new XZCompressorInputStream(in, true);
+    }
+}
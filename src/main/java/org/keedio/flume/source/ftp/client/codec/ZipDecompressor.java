@@ -0,0 +1,92 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+
+/**
+ * zip archives, read as the content of all their files one after another in
+ * the order they were stored. The archive is read as a stream, without its
+ * central directory, so it needs no random access. A line break is added
+ * after an entry not ending in one, so the last line of an entry and the
+ * first of the next one are not joined.
+ */
+public class ZipDecompressor extends AbstractDecompressor {
+
+    public ZipDecompressor() {
+        super("zip", "zip");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return ZipArchiveInputStream.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        return new EntriesInputStream(new ZipArchiveInputStream(in, "UTF-8", true, true));
+    }
+
+    /**
+     * Content of the entries of an archive, skipping directories.
+     */
+    private static class EntriesInputStream extends InputStream {
+
+        private final ZipArchiveInputStream archive;
+        private boolean inEntry;
+        private boolean finished;
+        private int last = '\n';
+
+        EntriesInputStream(ZipArchiveInputStream archive) {
+            this.archive = archive;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!finished) {
+                if (!inEntry) {
+                    ZipArchiveEntry entry = archive.getNextZipEntry();
+                    if (entry == null) {
+                        finished = true;
+                        break;
+                    }
+                    inEntry = !entry.isDirectory();
+                    continue;
+                }
+                int read = archive.read(b, off, len);
+                if (read > 0) {
+                    last = b[off + read - 1];
+                    return read;
+                }
+                if (read == -1) {
+                    inEntry = false;
+                    if (last != '\n' && last != '\r') {
+                        last = '\n';
+                        b[off] = '\n';
+                        return 1;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            archive.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+/**
+ * Zstandard, concatenated frames included. Needs zstd-jni and its native
+ * library for the platform.
+ */
+public class ZstdDecompressor extends AbstractDecompressor {
+
+    public ZstdDecompressor() {
+        super("zstd", "zst", "zstd");
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return ZstdUtils.matches(head, length);
+    }
+
+    @Override
+    protected InputStream decode(InputStream in) throws IOException {
+        if (!ZstdUtils.isZstdCompressionAvailable()) {
+            throw new IOException("zstd decompression needs com.github.luben:zstd-jni in the classpath");
+        }
+        return new ZstdCompressorInputStream(in);
+    }
+}
@@ -4,13 +4,23 @@
 package org.keedio.flume.source.ftp.client.factory;
 
 import org.apache.flume.Context;
+import org.apache.flume.source.PollableSourceConstants;
 import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.codec.Decompressor;
+import org.keedio.flume.source.ftp.client.codec.DecompressorRegistry;
 import org.keedio.flume.source.ftp.client.sources.FTPSSource;
 import org.keedio.flume.source.ftp.client.sources.FTPSource;
 import org.keedio.flume.source.ftp.client.sources.SFTPSource;
+import org.keedio.flume.source.ftp.client.tracking.FingerprintTrackingStore;
+import org.keedio.flume.source.ftp.client.tracking.MapTrackingStore;
+import org.keedio.flume.source.ftp.client.tracking.TrackingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
 /**
  *
  * @author Luis Lázaro lalazaro@keedio.com Keedio
@@ -20,6 +30,9 @@ public class SourceFactory {
     private KeedioSource keedioSource;
     private static final Logger LOGGER = LoggerFactory.getLogger(KeedioSource.class);
     private static final Integer DISCOVER_DELAY = 10000;
+    private static final boolean DISCOVER_ADAPTIVE_DEFAULT = false;
+    private static final Integer DISCOVER_DELAY_MIN = 1000;
+    private static final Integer DISCOVER_DELAY_MAX = 300000;
     private static final boolean FLUSHLINE_DEFAULT = true;
     private static final String FOLDER_DEFAULT = System.getProperty("java.io.tmpdir");
     private static final Integer CHUNKSIZE_DEFAULT = 1024;
@@ -29,6 +42,24 @@ public class SourceFactory {
     private static final Integer PROCESSINUSE_TIMEOUT = 60;
     private static final String FILE_COMPRESSION_FORMAT = null;
     private static final boolean DELETE_ON_COMPLETION_DEFAULT = false;
+    private static final Integer BATCH_SIZE_DEFAULT = 100;
+    private static final Long BATCH_MAX_BYTES_DEFAULT = 0L;
+    private static final Long BATCH_LINGER_MS_DEFAULT = 0L;
+    private static final Long DELIVERY_BACKOFF_MS_DEFAULT = 100L;
+    private static final Long DELIVERY_MAX_BACKOFF_MS_DEFAULT = 5000L;
+    private static final Long CHECKPOINT_BYTES_DEFAULT = 16L * 1024 * 1024;
+    private static final Long CHECKPOINT_INTERVAL_MS_DEFAULT = 10000L;
+    private static final Integer MULTILINE_MAX_LINES_DEFAULT = 500;
+    private static final Integer MULTILINE_MAX_BYTES_DEFAULT = 1024 * 1024;
+    private static final Long MULTILINE_FLUSH_TIMEOUT_MS_DEFAULT = 0L;
+    private static final Integer MAX_CONNECTIONS_DEFAULT = 1;
+    private static final Integer SFTP_CHANNELS_DEFAULT = 1;
+    private static final Integer DISCOVERY_THREADS_DEFAULT = 1;
+    private static final Integer DISCOVERY_QUEUE_SIZE_DEFAULT = 1000;
+    private static final Integer COMPRESSED_THREADS_DEFAULT = 1;
+    private static final String LISTING_MODE_DEFAULT = FTPSource.LISTING_MODE_LIST;
+    private static final String TRACKING_STORE_DEFAULT = "map";
+    private static final boolean TRACKING_STORE_MMAP_DEFAULT = false;
 
     /**
      * Create KeedioSource
@@ -42,6 +73,22 @@ public class SourceFactory {
         return keedioSource;
     }
 
+    /**
+     * Create a KeedioSource configured only to connect and transfer, for the
+     * connections of a pool: it does not track files nor decode them, so no
+     * store or decompressor is built for it.
+     *
+     * @param context
+     * @return KeedioSource
+     */
+    public KeedioSource createConnection(Context context) {
+        keedioSource = null;
+        if (initClient(context) != null) {
+            initConnectionParam(context);
+        }
+        return keedioSource;
+    }
+
     /**
      * Initiate attributes of KeediosSource according to context
      *
@@ -49,22 +96,35 @@ public class SourceFactory {
      * @return KeedioSource
      */
     public KeedioSource initSource(Context context) {
+        if (initClient(context) != null) {
+            initCommonParam(context);
+        }
+        return keedioSource;
+    }
+
+    /**
+     * Create the KeedioSource of the protocol in client.source, with the
+     * parameters of the protocol.
+     *
+     * @param context of the source
+     * @return KeedioSource, or null if the protocol is unknown
+     */
+    private KeedioSource initClient(Context context) {
         switch (context.getString("client.source")) {
             case "ftp":
-                keedioSource = new FTPSource();
-                initCommonParam(context);
+                FTPSource ftpSource = new FTPSource();
+                ftpSource.setListingMode(context.getString("listing.mode", LISTING_MODE_DEFAULT));
+                keedioSource = ftpSource;
                 break;
             case "sftp":
-                keedioSource = new SFTPSource();
                 SFTPSource sftpSource = new SFTPSource(
                   context.getString("knownHosts"),
                   context.getString("strictHostKeyChecking", "yes")
                 );
+                sftpSource.setChannelsPerSession(context.getInteger("sftp.channels", SFTP_CHANNELS_DEFAULT));
                 keedioSource = sftpSource;
-                initCommonParam(context);
                 break;
             case "ftps":
-                keedioSource = new FTPSSource();
                 FTPSSource ftpsSource = new FTPSSource(
                         context.getBoolean("security.enabled"),
                         context.getString("security.cipher"),
@@ -72,8 +132,8 @@ public class SourceFactory {
                         context.getString("path.keystore", FOLDER_DEFAULT),
                         context.getString("store.pass")
                 );
+                ftpsSource.setListingMode(context.getString("listing.mode", LISTING_MODE_DEFAULT));
                 keedioSource = ftpsSource;
-                initCommonParam(context);
                 break;
             default:
                 LOGGER.error("Source not found in context");
@@ -82,17 +142,28 @@ public class SourceFactory {
     }
 
     /**
-     * initialize common parameters for all sources.
+     * initialize parameters needed to connect, for all sources.
      * @param context of source
      */
-    public void initCommonParam(Context context) {
+    public void initConnectionParam(Context context) {
         keedioSource.setBufferSize(context.getInteger("buffer.size"));
         keedioSource.setServer(context.getString("name.server"));
         keedioSource.setUser(context.getString("user"));
         keedioSource.setPassword(context.getString("password"));
-        keedioSource.setRunDiscoverDelay(context.getInteger("run.discover.delay", DISCOVER_DELAY));
         keedioSource.setWorkingDirectory(context.getString("working.directory"));
         keedioSource.setPort(context.getInteger("port"));
+    }
+
+    /**
+     * initialize common parameters for all sources.
+     * @param context of source
+     */
+    public void initCommonParam(Context context) {
+        initConnectionParam(context);
+        keedioSource.setRunDiscoverDelay(context.getInteger("run.discover.delay", DISCOVER_DELAY));
+        keedioSource.setRunDiscoverAdaptive(context.getBoolean("run.discover.adaptive", DISCOVER_ADAPTIVE_DEFAULT));
+        keedioSource.setRunDiscoverDelayMin(context.getInteger("run.discover.delay.min", DISCOVER_DELAY_MIN));
+        keedioSource.setRunDiscoverDelayMax(context.getInteger("run.discover.delay.max", DISCOVER_DELAY_MAX));
         keedioSource.setFolder(context.getString("folder", FOLDER_DEFAULT));
         keedioSource.setFileName(context.getString("file.name", FILENAME_DEFAULT));
         keedioSource.setFlushLines(context.getBoolean("flushlines", FLUSHLINE_DEFAULT));
@@ -103,6 +174,102 @@ public class SourceFactory {
         keedioSource.setProcessInUseTimeout(context.getInteger("search.processInUseTimeout", PROCESSINUSE_TIMEOUT));
         keedioSource.setFileCompressed(context.getString("compressed", FILE_COMPRESSION_FORMAT));
         keedioSource.setDeleteOnCompletion(context.getBoolean("deleteOnCompletion", DELETE_ON_COMPLETION_DEFAULT));
+        keedioSource.setBatchSize(context.getInteger("batch.size", BATCH_SIZE_DEFAULT));
+        keedioSource.setBatchMaxBytes(context.getLong("batch.max.bytes", BATCH_MAX_BYTES_DEFAULT));
+        keedioSource.setBatchLingerMs(context.getLong("batch.linger.ms", BATCH_LINGER_MS_DEFAULT));
+        keedioSource.setDeliveryBackoffMs(context.getLong("delivery.backoff.ms", DELIVERY_BACKOFF_MS_DEFAULT));
+        keedioSource.setDeliveryMaxBackoffMs(context.getLong("delivery.backoff.max.ms",
+                DELIVERY_MAX_BACKOFF_MS_DEFAULT));
+        keedioSource.setCheckpointBytes(context.getLong("checkpoint.bytes", CHECKPOINT_BYTES_DEFAULT));
+        keedioSource.setCheckpointIntervalMs(context.getLong("checkpoint.interval.ms", CHECKPOINT_INTERVAL_MS_DEFAULT));
+        keedioSource.setMultilineStart(compilePattern(context, "multiline.start"));
+        keedioSource.setMultilineContinuation(compilePattern(context, "multiline.continuation"));
+        keedioSource.setMultilineMaxLines(context.getInteger("multiline.max.lines", MULTILINE_MAX_LINES_DEFAULT));
+        keedioSource.setMultilineMaxBytes(context.getInteger("multiline.max.bytes", MULTILINE_MAX_BYTES_DEFAULT));
+        keedioSource.setMultilineFlushTimeoutMs(context.getLong("multiline.flush.timeout.ms",
+                MULTILINE_FLUSH_TIMEOUT_MS_DEFAULT));
+        keedioSource.setBackoffSleepIncrement(context.getLong(PollableSourceConstants.BACKOFF_SLEEP_INCREMENT,
+                PollableSourceConstants.DEFAULT_BACKOFF_SLEEP_INCREMENT));
+        keedioSource.setMaxBackoffSleep(context.getLong(PollableSourceConstants.MAX_BACKOFF_SLEEP,
+                PollableSourceConstants.DEFAULT_MAX_BACKOFF_SLEEP));
+        keedioSource.setMaxConnections(context.getInteger("max.connections", MAX_CONNECTIONS_DEFAULT));
+        keedioSource.setDiscoveryThreads(context.getInteger("discovery.threads", DISCOVERY_THREADS_DEFAULT));
+        keedioSource.setDiscoveryQueueSize(context.getInteger("discovery.queue.size", DISCOVERY_QUEUE_SIZE_DEFAULT));
+        keedioSource.setTrackingStore(createTrackingStore(context));
+        keedioSource.setDecompressors(createDecompressors(context));
+        keedioSource.setInflateThreads(context.getInteger("compressed.threads", COMPRESSED_THREADS_DEFAULT));
+    }
+
+    /**
+     * Compile the regular expression of a parameter.
+     *
+     * @param context of source
+     * @param key of the parameter
+     * @return Pattern, or null if the parameter is not set or not valid
+     */
+    private Pattern compilePattern(Context context, String key) {
+        String regex = context.getString(key, "");
+        if (regex == null || regex.isEmpty()) {
+            return null;
+        }
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            LOGGER.error("Invalid " + key + " " + regex + ", ignoring it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Create the registry of decompressors: gzip, bzip2, xz, zstd, lz4 and
+     * zip, plus the classes listed in compressed.codecs, which replace the
+     * codecs with the same name or extensions.
+     *
+     * @param context of source
+     * @return DecompressorRegistry
+     */
+    private DecompressorRegistry createDecompressors(Context context) {
+        DecompressorRegistry registry = DecompressorRegistry.withDefaults();
+        String classNames = context.getString("compressed.codecs", "");
+        if (classNames == null) {
+            return registry;
+        }
+        for (String className : classNames.split(",")) {
+            if (className.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                registry.register((Decompressor) Class.forName(className.trim()).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.error("Could not register decompressor " + className.trim() + ", ignoring it", e);
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Create the store of processed files selected by tracking.store: map
+     * keeps full paths, fingerprint keeps 64 bits hashes of them, optionally
+     * memory mapped in folder.
+     *
+     * @param context of source
+     * @return TrackingStore
+     */
+    private TrackingStore createTrackingStore(Context context) {
+        String type = context.getString("tracking.store", TRACKING_STORE_DEFAULT);
+        type = type == null ? TRACKING_STORE_DEFAULT : type.toLowerCase().trim();
+        switch (type) {
+            case "fingerprint":
+                if (context.getBoolean("tracking.store.mmap", TRACKING_STORE_MMAP_DEFAULT)) {
+                    return new FingerprintTrackingStore(Paths.get(keedioSource.getFolder()));
+                }
+                return new FingerprintTrackingStore();
+            case "map":
+                return new MapTrackingStore();
+            default:
+                LOGGER.error("Unknown tracking.store " + type + ", using map");
+                return new MapTrackingStore();
+        }
     }
 
 }
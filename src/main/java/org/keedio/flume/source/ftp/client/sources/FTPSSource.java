@@ -34,6 +34,8 @@ public class FTPSSource extends KeedioSource<FTPFile> {
     private boolean securityMode, securityCert;
     private String protocolSec, pathTokesytore, storePass;
     private FTPSClient ftpsClient;
+    private String listingMode = FTPSource.LISTING_MODE_LIST;
+    private boolean mlsdSupported;
 
     public FTPSSource() {
     }
@@ -80,6 +82,15 @@ public class FTPSSource extends KeedioSource<FTPFile> {
                 ftpsClient.setBufferSize(getBufferSize());
             }
 
+            mlsdSupported = false;
+            if (FTPSource.LISTING_MODE_MLSD.equals(listingMode) && isConnected()) {
+                // RFC 3659 advertises MLSD under the MLST feature
+                mlsdSupported = ftpsClient.hasFeature("MLST") || ftpsClient.hasFeature("MLSD");
+                if (!mlsdSupported) {
+                    LOGGER.warn("Server does not advertise MLST in FEAT, listing with LIST");
+                }
+            }
+
         } catch (IOException e) {
             this.setConnected(false);
             LOGGER.error("", e);
@@ -102,15 +113,6 @@ public class FTPSSource extends KeedioSource<FTPFile> {
         }
     }
 
-    @Override
-    /**
-     * @return void
-     * @param String destination
-     */
-    public void changeToDirectory(String directory) throws IOException {        
-            ftpsClient.changeWorkingDirectory(directory);        
-    }
-
     @Override
     /**
      * @return list with objects in directory
@@ -119,7 +121,8 @@ public class FTPSSource extends KeedioSource<FTPFile> {
     public List<FTPFile> listElements(String dir) throws IOException {
         List<FTPFile> list = new ArrayList<>();
 
-        FTPFile[] subFiles = getFtpsClient().listFiles(dir);
+        FTPFile[] subFiles = mlsdSupported ? getFtpsClient().mlistDir(dir, new MlsdFileFilter(null))
+                : getFtpsClient().listFiles(dir);
         list = Arrays.asList(subFiles);
 
         return list;
@@ -130,15 +133,38 @@ public class FTPSSource extends KeedioSource<FTPFile> {
      * @param Object
      * @return InputStream
      */
-    public InputStream getInputStream(FTPFile file) throws IOException {
+    public InputStream getInputStream(String path) throws IOException {
+        return getInputStream(path, 0L);
+    }
+
+    /**
+     * Retrieve file from position issuing REST before RETR, so the server only
+     * sends the bytes not processed yet. Transfers are always binary as REST
+     * offsets are byte offsets. If the server refuses to restart, the file is
+     * retrieved from the beginning and the first position bytes are skipped.
+     *
+     * @param path absolute path of the file
+     * @param position offset of the first byte to retrieve
+     * @return InputStream
+     * @throws IOException
+     */
+    @Override
+    public InputStream getInputStream(String path, long position) throws IOException {
         InputStream inputStream = null;
 
-        if (isFlushLines()) {
-            this.setFileType(FTP.ASCII_FILE_TYPE);
-        } else {
-            this.setFileType(FTP.BINARY_FILE_TYPE);
+        this.setFileType(FTP.BINARY_FILE_TYPE);
+        getFtpsClient().setRestartOffset(position);
+        try {
+            inputStream = getFtpsClient().retrieveFileStream(path);
+        } finally {
+            getFtpsClient().setRestartOffset(0L);
+        }
+
+        if (inputStream == null && position > 0) {
+            LOGGER.warn("Server refused to restart " + path + " at " + position
+                    + ", retrieving it from the beginning");
+            inputStream = super.getInputStream(path, position);
         }
-        inputStream = getFtpsClient().retrieveFileStream(file.getName());
 
         return inputStream;
     }
@@ -169,14 +195,13 @@ public class FTPSSource extends KeedioSource<FTPFile> {
     }
 
     @Override
-    public boolean rm(FTPFile file) {
+    public boolean rm(String path) {
         try {
-            getFtpsClient().deleteFile(getWorkingDirectory() + "/" + file.getName());
+            return getFtpsClient().deleteFile(path);
         } catch (IOException e) {
             LOGGER.error("", e);
             return false;
         }
-        return true;
     }
 
     @Override
@@ -215,6 +240,25 @@ public class FTPSSource extends KeedioSource<FTPFile> {
         return file.getSize();
     }
 
+    /**
+     * @param path absolute path of the file
+     * @return size of the file from MLST if the server supports it, from
+     * LIST of the file otherwise or if MLST gave no size
+     * @throws IOException
+     */
+    @Override
+    public long statSize(String path) throws IOException {
+        if (mlsdSupported) {
+            FTPFile file = getFtpsClient().mlistFile(path);
+            if (file != null && file.getSize() >= 0) {
+                return file.getSize();
+            }
+            // facts sent without their leading space lose their first letter, LIST still has the size
+        }
+        FTPFile[] files = getFtpsClient().listFiles(path);
+        return files.length == 1 && files[0] != null && files[0].isFile() ? files[0].getSize() : -1;
+    }
+
     @Override
     /**
      * @return boolean is a link
@@ -334,10 +378,34 @@ public class FTPSSource extends KeedioSource<FTPFile> {
         }
     }
 
+    /**
+     * @return the listingMode
+     */
+    public String getListingMode() {
+        return listingMode;
+    }
+
+    /**
+     * @param listingMode list, or mlsd to use MLSD if the server supports it
+     */
+    public void setListingMode(String listingMode) {
+        if (listingMode != null) {
+            this.listingMode = listingMode.toLowerCase().trim();
+        }
+    }
+
+    /**
+     * @return true if listings are issued with MLSD on this connection
+     */
+    public boolean isMlsdSupported() {
+        return mlsdSupported;
+    }
+
     @Override
     public List<FTPFile> listElements(String dirToList, KeedioFileFilter filter) throws IOException {
         List<FTPFile> list = new ArrayList<>();
-        FTPFile[] subFiles = getFtpsClient().listFiles(dirToList, filter);
+        FTPFile[] subFiles = mlsdSupported ? getFtpsClient().mlistDir(dirToList, new MlsdFileFilter(filter))
+                : getFtpsClient().listFiles(dirToList, filter);
         list = Arrays.asList(subFiles);
         return list;
     }
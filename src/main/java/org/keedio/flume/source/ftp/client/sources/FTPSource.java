@@ -27,7 +27,19 @@ import org.apache.commons.net.ftp.FTP;
 public class FTPSource extends KeedioSource<FTPFile> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FTPSource.class);
+
+    /**
+     * Listing with LIST, parsing the text returned.
+     */
+    public static final String LISTING_MODE_LIST = "list";
+
+    /**
+     * Listing with MLSD when the server supports it, exact sizes and times.
+     */
+    public static final String LISTING_MODE_MLSD = "mlsd";
     private FTPClient ftpClient = new FTPClient();
+    private String listingMode = LISTING_MODE_LIST;
+    private boolean mlsdSupported;
 
     /**
      * @return boolean Opens a Socket connected to a server and login to return
@@ -61,6 +73,15 @@ public class FTPSource extends KeedioSource<FTPFile> {
                 getFtpClient().setBufferSize(getBufferSize());
             }
 
+            mlsdSupported = false;
+            if (LISTING_MODE_MLSD.equals(listingMode) && isConnected()) {
+                // RFC 3659 advertises MLSD under the MLST feature
+                mlsdSupported = getFtpClient().hasFeature("MLST") || getFtpClient().hasFeature("MLSD");
+                if (!mlsdSupported) {
+                    LOGGER.warn("Server does not advertise MLST in FEAT, listing with LIST");
+                }
+            }
+
         } catch (IOException e) {
             this.setConnected(false);
             LOGGER.error("", e);
@@ -84,15 +105,6 @@ public class FTPSource extends KeedioSource<FTPFile> {
         }
     }
 
-    @Override
-    /**
-     * @return void
-     * @param String destination
-     */
-    public void changeToDirectory(String dir) throws IOException {        
-            ftpClient.changeWorkingDirectory(dir);        
-    }
-
     @Override
     /**
      * @return list with objects in directory
@@ -100,7 +112,8 @@ public class FTPSource extends KeedioSource<FTPFile> {
      */
     public List<FTPFile> listElements(String dir) throws IOException {
         List<FTPFile> list = new ArrayList<>();
-        FTPFile[] subFiles = getFtpClient().listFiles(dir);
+        FTPFile[] subFiles = mlsdSupported ? getFtpClient().mlistDir(dir, new MlsdFileFilter(null))
+                : getFtpClient().listFiles(dir);
         list = Arrays.asList(subFiles);
         return list;
     }
@@ -110,15 +123,38 @@ public class FTPSource extends KeedioSource<FTPFile> {
      * @param Object
      * @return InputStream
      */
-    public InputStream getInputStream(FTPFile file) throws IOException {
+    public InputStream getInputStream(String path) throws IOException {
+        return getInputStream(path, 0L);
+    }
+
+    /**
+     * Retrieve file from position issuing REST before RETR, so the server only
+     * sends the bytes not processed yet. Transfers are always binary as REST
+     * offsets are byte offsets. If the server refuses to restart, the file is
+     * retrieved from the beginning and the first position bytes are skipped.
+     *
+     * @param path absolute path of the file
+     * @param position offset of the first byte to retrieve
+     * @return InputStream
+     * @throws IOException
+     */
+    @Override
+    public InputStream getInputStream(String path, long position) throws IOException {
         InputStream inputStream = null;
 
-        if (isFlushLines()) {
-            this.setFileType(FTP.ASCII_FILE_TYPE);
-        } else {
-            this.setFileType(FTP.BINARY_FILE_TYPE);
+        this.setFileType(FTP.BINARY_FILE_TYPE);
+        getFtpClient().setRestartOffset(position);
+        try {
+            inputStream = getFtpClient().retrieveFileStream(path);
+        } finally {
+            getFtpClient().setRestartOffset(0L);
+        }
+
+        if (inputStream == null && position > 0) {
+            LOGGER.warn("Server refused to restart " + path + " at " + position
+                    + ", retrieving it from the beginning");
+            inputStream = super.getInputStream(path, position);
         }
-        inputStream = getFtpClient().retrieveFileStream(file.getName());
 
         return inputStream;
     }
@@ -149,14 +185,13 @@ public class FTPSource extends KeedioSource<FTPFile> {
     }
 
     @Override
-    public boolean rm(FTPFile file) {
+    public boolean rm(String path) {
         try {
-            getFtpClient().deleteFile(getWorkingDirectory() + "/" + file.getName());
+            return getFtpClient().deleteFile(path);
         } catch (IOException e) {
             LOGGER.error("", e);
             return false;
         }
-        return true;
     }
 
     @Override
@@ -195,6 +230,25 @@ public class FTPSource extends KeedioSource<FTPFile> {
         return file.getSize();
     }
 
+    /**
+     * @param path absolute path of the file
+     * @return size of the file from MLST if the server supports it, from
+     * LIST of the file otherwise or if MLST gave no size
+     * @throws IOException
+     */
+    @Override
+    public long statSize(String path) throws IOException {
+        if (mlsdSupported) {
+            FTPFile file = getFtpClient().mlistFile(path);
+            if (file != null && file.getSize() >= 0) {
+                return file.getSize();
+            }
+            // facts sent without their leading space lose their first letter, LIST still has the size
+        }
+        FTPFile[] files = getFtpClient().listFiles(path);
+        return files.length == 1 && files[0] != null && files[0].isFile() ? files[0].getSize() : -1;
+    }
+
     @Override
     /**
      * @return boolean is a link
@@ -253,10 +307,34 @@ public class FTPSource extends KeedioSource<FTPFile> {
         ftpClient.setFileType(fileType);
     }
 
+    /**
+     * @return the listingMode
+     */
+    public String getListingMode() {
+        return listingMode;
+    }
+
+    /**
+     * @param listingMode list, or mlsd to use MLSD if the server supports it
+     */
+    public void setListingMode(String listingMode) {
+        if (listingMode != null) {
+            this.listingMode = listingMode.toLowerCase().trim();
+        }
+    }
+
+    /**
+     * @return true if listings are issued with MLSD on this connection
+     */
+    public boolean isMlsdSupported() {
+        return mlsdSupported;
+    }
+
     @Override
     public List<FTPFile> listElements(String dirToList, KeedioFileFilter filter) throws IOException {
         List<FTPFile> list = new ArrayList<>();
-        FTPFile[] subFiles = getFtpClient().listFiles(dirToList, filter);
+        FTPFile[] subFiles = mlsdSupported ? getFtpClient().mlistDir(dirToList, new MlsdFileFilter(filter))
+                : getFtpClient().listFiles(dirToList, filter);
         list = Arrays.asList(subFiles);
         return list;
     }
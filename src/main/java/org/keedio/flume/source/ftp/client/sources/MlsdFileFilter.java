@@ -0,0 +1,40 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.sources;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileFilter;
+
+/**
+ * Filter of entries returned by MLSD. Besides the entries of the directory,
+ * servers may list the directory itself (type=cdir) and its parent
+ * (type=pdir), under any name, so they are dropped before walking the tree.
+ */
+class MlsdFileFilter implements FTPFileFilter {
+
+    private final FTPFileFilter filter;
+
+    /**
+     *
+     * @param filter applied to the entries of the directory, may be null
+     */
+    MlsdFileFilter(FTPFileFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean accept(FTPFile file) {
+        if (file == null) {
+            return false;
+        }
+        String raw = file.getRawListing();
+        if (raw != null) {
+            String facts = raw.toLowerCase();
+            if (facts.contains("type=cdir;") || facts.contains("type=pdir;")) {
+                return false;
+            }
+        }
+        return filter == null || filter.accept(file);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.sources;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Authenticated SSH session shared by several SFTPSource, each one with its
+ * own sftp channel, so only the first of them pays for key exchange and
+ * authentication.
+ *
+ * The session is closed when its last channel is released. If the session is
+ * found broken when a channel is acquired, a new one is opened, and the old
+ * one is closed when the last channel still bound to it is released, as
+ * channels are counted per session.
+ */
+class SFTPSharedSession {
+
+    private final int maxMembers;
+    private int members;
+    private final Map<Session, Integer> channels = new IdentityHashMap<>();
+    private Session session;
+
+    /**
+     *
+     * @param session already connected, owned by the first member
+     * @param maxMembers max number of SFTPSource sharing this session
+     */
+    SFTPSharedSession(Session session, int maxMembers) {
+        this.session = session;
+        this.maxMembers = maxMembers;
+        this.members = 1;
+        if (session != null && session.isConnected()) {
+            channels.put(session, 1);
+        }
+    }
+
+    /**
+     * Bind one more SFTPSource to this session.
+     *
+     * @return false if the session already has maxMembers
+     */
+    synchronized boolean join() {
+        if (members >= maxMembers) {
+            return false;
+        }
+        members++;
+        return true;
+    }
+
+    /**
+     * Get the session to open a channel on, connecting a new one if needed.
+     * A session replaced stays open until its last channel is released.
+     *
+     * @param source whose credentials are used if a new session is opened
+     * @return Session connected
+     * @throws JSchException
+     */
+    synchronized Session acquire(SFTPSource source) throws JSchException {
+        if (session == null || !session.isConnected()) {
+            session = source.openSession();
+        }
+        Integer count = channels.get(session);
+        channels.put(session, count == null ? 1 : count + 1);
+        return session;
+    }
+
+    /**
+     * Give back a session once the channel opened on it is closed, closing
+     * the session with its last channel.
+     *
+     * @param used session returned by acquire
+     */
+    synchronized void release(Session used) {
+        Integer count = channels.get(used);
+        if (count != null && count > 1) {
+            channels.put(used, count - 1);
+            return;
+        }
+        channels.remove(used);
+        used.disconnect();
+        if (used == session) {
+            session = null;
+        }
+    }
+}
@@ -28,6 +28,8 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
     private Channel channel;
     private ChannelSftp sftpClient;
     private String strictHostKeyChecking;
+    private int channelsPerSession = 1;
+    private SFTPSharedSession sharedSession;
 
     /**
      *
@@ -47,17 +49,14 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
 
     /**
      * @return boolean Opens a Socket connected to a server and login to return
-     * True if successfully completed, false if not.
+     * True if successfully completed, false if not. If this source shares the
+     * session of others, only a new channel is opened on it.
      */
     @Override
     public boolean connect() {
         setConnected(true);
         try {
-            jsch.setKnownHosts(knownHosts);
-            sessionSftp = jsch.getSession(user, server, port);
-            sessionSftp.setConfig("StrictHostKeyChecking", strictHostKeyChecking);
-            sessionSftp.setPassword(password);
-            sessionSftp.connect();
+            sessionSftp = sharedSession != null ? sharedSession.acquire(this) : openSession();
             if (sessionSftp.isConnected()) {
                 channel = sessionSftp.openChannel("sftp");
                 channel.connect();
@@ -71,17 +70,79 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
             }
 
         } catch (JSchException e) {
-            if (!(sessionSftp.isConnected())) {
+            if (sessionSftp == null || !(sessionSftp.isConnected()) || sharedSession != null) {
                 LOGGER.info("JSchException ", e);
                 this.setConnected(false);
+                releaseSession();
             }
         } catch (SftpException e) {
             this.setConnected(false);
             LOGGER.error("", e);
+            releaseSession();
         }
         return isConnected();
     }
 
+    /**
+     * Open and authenticate a new session to the server.
+     *
+     * @return Session connected
+     * @throws JSchException
+     */
+    Session openSession() throws JSchException {
+        jsch.setKnownHosts(knownHosts);
+        Session session = jsch.getSession(user, server, port);
+        session.setConfig("StrictHostKeyChecking", strictHostKeyChecking);
+        session.setPassword(password);
+        session.connect();
+        return session;
+    }
+
+    /**
+     * Share the session of owner, opening only a new sftp channel on it when
+     * connecting, as long as it has less than channelsPerSession channels.
+     *
+     * @param owner connection whose transport is shared
+     * @return boolean, true if this source will use the session of owner
+     */
+    @Override
+    public boolean shareTransport(KeedioSource owner) {
+        if (channelsPerSession <= 1 || !(owner instanceof SFTPSource)) {
+            return false;
+        }
+        SFTPSharedSession shared = ((SFTPSource) owner).getSharedSession();
+        if (!shared.join()) {
+            return false;
+        }
+        sharedSession = shared;
+        return true;
+    }
+
+    /**
+     * @return the session of this source made shareable with others
+     */
+    synchronized SFTPSharedSession getSharedSession() {
+        if (sharedSession == null) {
+            sharedSession = new SFTPSharedSession(sessionSftp, channelsPerSession);
+        }
+        return sharedSession;
+    }
+
+    /**
+     * Close the session, or give it back if it is shared.
+     */
+    private void releaseSession() {
+        if (sessionSftp == null) {
+            return;
+        }
+        if (sharedSession != null) {
+            sharedSession.release(sessionSftp);
+        } else {
+            sessionSftp.disconnect();
+        }
+        sessionSftp = null;
+    }
+
     /**
      * @return the knownHosts
      */
@@ -138,6 +199,20 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
         this.channel = channel;
     }
 
+    /**
+     * @return max number of sftp channels opened on one session
+     */
+    public int getChannelsPerSession() {
+        return channelsPerSession;
+    }
+
+    /**
+     * @param channelsPerSession the channelsPerSession to set
+     */
+    public void setChannelsPerSession(int channelsPerSession) {
+        this.channelsPerSession = channelsPerSession;
+    }
+
     /**
      * @return the sftpClient
      */
@@ -158,28 +233,16 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
      */
     @Override
     public void disconnect() {
-        channel.disconnect();
-        sessionSftp.disconnect();
+        if (channel != null) {
+            channel.disconnect();
+        }
+        releaseSession();
         setConnected(false);
         if (isConnected()) {
             LOGGER.error("Source " + this.getClass().getName() + " failed disconnect");
         }
     }
 
-    @Override
-    /**
-     * @return void
-     * @param String destination
-     */
-    public void changeToDirectory(String directory) throws IOException {
-        try {
-            sftpClient.cd(directory);
-        } catch (SftpException e) {
-            LOGGER.error("Could not change to directory " + directory, e);
-            throw new IOException(e.getMessage());
-        }
-    }
-
     @Override
     /**
      * @return list with objects in directory
@@ -201,10 +264,24 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
      * @param Object
      * @return InputStream
      */
-    public InputStream getInputStream(ChannelSftp.LsEntry file) throws IOException {
-        InputStream inputStream = null;       
+    public InputStream getInputStream(String path) throws IOException {
+        return getInputStream(path, 0L);
+    }
+
+    /**
+     * Retrieve file from position, the offset is sent with the read requests
+     * so the skipped bytes never leave the server.
+     *
+     * @param path absolute path of the file
+     * @param position offset of the first byte to retrieve
+     * @return InputStream
+     * @throws IOException
+     */
+    @Override
+    public InputStream getInputStream(String path, long position) throws IOException {
+        InputStream inputStream = null;
         try {
-            inputStream = sftpClient.get(file.getFilename());
+            inputStream = sftpClient.get(path, null, position);
         } catch (SftpException e) {
             LOGGER.error("Error trying to retrieve inputstream", e);
             throw new IOException(e.getMessage());
@@ -231,9 +308,9 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
     }
 
     @Override
-    public boolean rm(ChannelSftp.LsEntry file) {
+    public boolean rm(String path) {
         try {
-            getSftpClient().rm(getWorkingDirectory() + "/" + getObjectName(file));
+            getSftpClient().rm(path);
         } catch (SftpException e) {
             LOGGER.error("", e);
             return false;
@@ -278,17 +355,25 @@ public class SFTPSource extends KeedioSource<ChannelSftp.LsEntry> {
 
     @Override
     /**
-     * @return long size
+     * @return long size, as returned by the listing
      * @param object file
      */
     public long getObjectSize(ChannelSftp.LsEntry file) {
-        long filesize = 0L;
+        return file.getAttrs().getSize();
+    }
+
+    /**
+     * @param path absolute path of the file
+     * @return size of the file from a new lstat
+     * @throws IOException
+     */
+    @Override
+    public long statSize(String path) throws IOException {
         try {
-            filesize = sftpClient.lstat(file.getFilename()).getSize();
+            return sftpClient.lstat(path).getSize();
         } catch (SftpException e) {
-            LOGGER.error("Could not lstat to get size of the file", e);
+            throw new IOException("Could not lstat " + path + ": " + e.getMessage(), e);
         }
-        return filesize;
     }
 
     @Override
@@ -0,0 +1,488 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TrackingStore keeping a 64 bits fingerprint of every path instead of the
+ * path itself, in an open addressing table of primitive longs: two slots per
+ * file, the fingerprint and the size processed, whose sign bit marks the file
+ * as found during the current poll. A file costs 16 bytes per slot of the
+ * table instead of a map entry, a String and a Long, and the table can live
+ * in a memory mapped file out of the heap.
+ *
+ * Two different paths sharing a fingerprint would be taken for the same file,
+ * the chance is below one in ten million with two million files tracked.
+ * Paths can not be recovered from fingerprints: snapshots hold the table, and
+ * snapshots of MapTrackingStore are converted when read, not the other way.
+ */
+public class FingerprintTrackingStore implements TrackingStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FingerprintTrackingStore.class);
+    private static final int MAGIC = 0x4b465453;
+    private static final int VERSION = 1;
+    private static final long EMPTY = 0;
+    private static final long DELETED = 1;
+    private static final long SEEN = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_MAPPED_CAPACITY = 1 << 26;
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private final Path indexFolder;
+    private LongBuffer table;
+    private int capacity;
+    private int size;
+    private int used;
+
+    /**
+     * Table on the heap.
+     */
+    public FingerprintTrackingStore() {
+        this(null);
+    }
+
+    /**
+     *
+     * @param indexFolder folder where the table is memory mapped, null to
+     *                    keep it on the heap
+     */
+    public FingerprintTrackingStore(Path indexFolder) {
+        this.indexFolder = indexFolder;
+        this.table = allocate(MIN_CAPACITY);
+        this.capacity = MIN_CAPACITY;
+    }
+
+    /**
+     * FNV-1a over the chars of path, with the finalizer of MurmurHash3 so
+     * every bit of the fingerprint depends on every char.
+     *
+     * @param path of the file
+     * @return fingerprint of path, never EMPTY nor DELETED
+     */
+    public static long fingerprint(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY || hash == DELETED ? hash + 2 : hash;
+    }
+
+    @Override
+    public synchronized long get(String path) {
+        int slot = find(fingerprint(path));
+        return slot < 0 ? -1 : table.get(2 * slot + 1) & ~SEEN;
+    }
+
+    @Override
+    public synchronized void put(String path, long size) {
+        long fingerprint = fingerprint(path);
+        int slot = find(fingerprint);
+        if (slot >= 0) {
+            table.put(2 * slot + 1, (table.get(2 * slot + 1) & SEEN) | size);
+        } else {
+            insert(fingerprint, size);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String path) {
+        removeFingerprint(fingerprint(path));
+    }
+
+    /**
+     * Remove the file with a fingerprint, as journaled by removeUnseen since
+     * paths are not kept.
+     *
+     * @param fingerprint of the path removed
+     */
+    public synchronized void removeFingerprint(long fingerprint) {
+        int slot = find(fingerprint);
+        if (slot >= 0) {
+            table.put(2 * slot, DELETED);
+            table.put(2 * slot + 1, 0);
+            size--;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void markSeen(String path) {
+        int slot = find(fingerprint(path));
+        if (slot >= 0) {
+            table.put(2 * slot + 1, table.get(2 * slot + 1) | SEEN);
+        }
+    }
+
+    @Override
+    public synchronized void unmarkSeen(String path) {
+        int slot = find(fingerprint(path));
+        if (slot >= 0) {
+            table.put(2 * slot + 1, table.get(2 * slot + 1) & ~SEEN);
+        }
+    }
+
+    @Override
+    public synchronized int removeUnseen(TrackingJournal journal) throws IOException {
+        int removed = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long fingerprint = table.get(2 * slot);
+            if (fingerprint == EMPTY || fingerprint == DELETED) {
+                continue;
+            }
+            long value = table.get(2 * slot + 1);
+            if ((value & SEEN) != 0) {
+                table.put(2 * slot + 1, value & ~SEEN);
+            } else {
+                table.put(2 * slot, DELETED);
+                table.put(2 * slot + 1, 0);
+                size--;
+                removed++;
+                if (journal != null) {
+                    journal.removeFingerprint(fingerprint);
+                }
+            }
+        }
+        if (used - size > capacity / 4) {
+            rehash(capacity);
+        }
+        return removed;
+    }
+
+    /**
+     * @return read only copy holding the fingerprints and sizes only, on the
+     * heap, meant to write a snapshot; the table is neither copied nor mapped
+     * again
+     */
+    @Override
+    public synchronized TrackingStore copy() {
+        long[] pairs = new long[2 * size];
+        int pair = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long fingerprint = table.get(2 * slot);
+            if (fingerprint != EMPTY && fingerprint != DELETED) {
+                pairs[pair++] = fingerprint;
+                pairs[pair++] = table.get(2 * slot + 1) & ~SEEN;
+            }
+        }
+        return new PairsCopy(pairs);
+    }
+
+    /**
+     * Write the fingerprints and sizes into a temporary file moved over the
+     * snapshot, so a crash never leaves a partial snapshot behind.
+     *
+     * @param snapshot
+     * @throws IOException
+     */
+    @Override
+    public synchronized void writeSnapshot(Path snapshot) throws IOException {
+        writeSnapshot(snapshot, table, capacity, size);
+    }
+
+    /**
+     * @param snapshot
+     * @param table slots of fingerprints and sizes
+     * @param slots in table
+     * @param size live slots in table
+     * @throws IOException
+     */
+    private static void writeSnapshot(Path snapshot, LongBuffer table, int slots, int size) throws IOException {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp.toFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (int slot = 0; slot < slots; slot++) {
+                long fingerprint = table.get(2 * slot);
+                if (fingerprint != EMPTY && fingerprint != DELETED) {
+                    out.writeLong(fingerprint);
+                    out.writeLong(table.get(2 * slot + 1) & ~SEEN);
+                }
+            }
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot written by this store, or the serialized map written by
+     * MapTrackingStore, whose paths are converted to fingerprints.
+     *
+     * @param snapshot
+     * @throws IOException
+     */
+    @Override
+    public synchronized void readSnapshot(Path snapshot) throws IOException {
+        clear();
+        int magic;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshot.toFile()))) {
+            magic = in.readInt();
+        }
+        if (magic != MAGIC) {
+            Map<String, Long> map = MapTrackingStore.readMap(snapshot);
+            for (Map.Entry<String, Long> entry : map.entrySet()) {
+                insert(fingerprint(entry.getKey()), entry.getValue());
+            }
+            LOGGER.info("Converted map of " + map.size() + " files of " + snapshot + " to fingerprints");
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(snapshot.toFile())))) {
+            in.readInt();
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown version " + version + " of " + snapshot);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                insert(in.readLong(), in.readLong());
+            }
+        }
+    }
+
+    /**
+     * Drop the table, releasing the memory mapped file.
+     */
+    @Override
+    public synchronized void close() {
+        clear();
+    }
+
+    /**
+     * @return true if the table lives in a memory mapped file
+     */
+    synchronized boolean isMapped() {
+        return table.isDirect();
+    }
+
+    /**
+     * @param fingerprint
+     * @return slot of fingerprint, or -1 if not found
+     */
+    private int find(long fingerprint) {
+        int mask = capacity - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (true) {
+            long current = table.get(2 * slot);
+            if (current == fingerprint) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Insert a fingerprint not in the table yet, not marked as seen. The
+     * table grows up to MAX_CAPACITY slots, the largest whose longs fit in an
+     * array, and takes files up to seven eighths of it.
+     *
+     * @param fingerprint
+     * @param value size processed
+     */
+    private void insert(long fingerprint, long value) {
+        if (size >= capacity / 8 * 7) {
+            throw new IllegalStateException("Table of fingerprints is full with " + size + " files");
+        }
+        int mask = capacity - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (true) {
+            long current = table.get(2 * slot);
+            if (current == EMPTY || current == DELETED) {
+                if (current == EMPTY) {
+                    used++;
+                }
+                table.put(2 * slot, fingerprint);
+                table.put(2 * slot + 1, value);
+                size++;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (used > capacity / 4 * 3) {
+            if (size > capacity / 2 && capacity < MAX_CAPACITY) {
+                rehash(capacity * 2);
+            } else if (capacity < MAX_CAPACITY || used > capacity / 8 * 7) {
+                // at its largest the table only drops deleted slots, keeping one empty slot at least
+                rehash(capacity);
+            }
+        }
+    }
+
+    /**
+     * Move every live slot to a new table, dropping deleted ones.
+     *
+     * @param newCapacity power of two
+     */
+    private void rehash(int newCapacity) {
+        LongBuffer old = table;
+        int oldCapacity = capacity;
+        table = allocate(newCapacity);
+        capacity = newCapacity;
+        size = 0;
+        used = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long fingerprint = old.get(2 * slot);
+            if (fingerprint != EMPTY && fingerprint != DELETED) {
+                insert(fingerprint, old.get(2 * slot + 1));
+            }
+        }
+    }
+
+    private void clear() {
+        table = allocate(MIN_CAPACITY);
+        capacity = MIN_CAPACITY;
+        size = 0;
+        used = 0;
+    }
+
+    private LongBuffer allocate(int newCapacity) {
+        if (indexFolder == null) {
+            return allocateHeap(newCapacity);
+        }
+        if (newCapacity > MAX_MAPPED_CAPACITY) {
+            LOGGER.warn("Table of fingerprints can not be mapped beyond " + MAX_MAPPED_CAPACITY
+                    + " slots, keeping it on the heap");
+            return allocateHeap(newCapacity);
+        }
+        try {
+            return allocateMapped(newCapacity);
+        } catch (IOException e) {
+            LOGGER.error("Error mapping table of fingerprints in " + indexFolder + ", keeping it on the heap", e);
+            return allocateHeap(newCapacity);
+        }
+    }
+
+    private static LongBuffer allocateHeap(int newCapacity) {
+        return LongBuffer.wrap(new long[2 * newCapacity]);
+    }
+
+    /**
+     * Map a new file sized for the table. The file is deleted right away, the
+     * mapping keeps its pages until the buffer is garbage collected.
+     *
+     * @param newCapacity
+     * @return LongBuffer backed by the file, filled with zeros
+     * @throws IOException
+     */
+    private LongBuffer allocateMapped(int newCapacity) throws IOException {
+        Path file = Files.createTempFile(indexFolder, "tracking", ".index");
+        LongBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = 16L * newCapacity;
+            raf.setLength(length);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+        return buffer;
+    }
+
+    /**
+     * Read only copy of the files tracked, as the fingerprints and sizes of
+     * the live slots one after another.
+     */
+    private static final class PairsCopy implements TrackingStore {
+
+        private final long[] pairs;
+
+        private PairsCopy(long[] pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        public long get(String path) {
+            long fingerprint = fingerprint(path);
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (pairs[i] == fingerprint) {
+                    return pairs[i + 1];
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void put(String path, long size) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public void remove(String path) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public int size() {
+            return pairs.length / 2;
+        }
+
+        @Override
+        public void markSeen(String path) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public void unmarkSeen(String path) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public int removeUnseen(TrackingJournal journal) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public TrackingStore copy() {
+            return this;
+        }
+
+        @Override
+        public void writeSnapshot(Path snapshot) throws IOException {
+            FingerprintTrackingStore.writeSnapshot(snapshot, LongBuffer.wrap(pairs), pairs.length / 2, size());
+        }
+
+        @Override
+        public void readSnapshot(Path snapshot) {
+            throw new UnsupportedOperationException("Copy of the files tracked is read only");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TrackingStore keeping the full path of every file in a HashMap, and the
+ * paths found during the current poll in a HashSet. Snapshots are the
+ * serialized HashMap written by previous versions.
+ */
+public class MapTrackingStore implements TrackingStore {
+
+    private Map<String, Long> fileList;
+    private Set<String> existFileList;
+
+    /**
+     *
+     */
+    public MapTrackingStore() {
+        this(new HashMap<String, Long>(), new HashSet<String>());
+    }
+
+    /**
+     *
+     * @param fileList map of processed files
+     * @param existFileList files found during the current poll
+     */
+    public MapTrackingStore(Map<String, Long> fileList, Set<String> existFileList) {
+        this.fileList = fileList;
+        this.existFileList = existFileList;
+    }
+
+    @Override
+    public synchronized long get(String path) {
+        Long size = fileList.get(path);
+        return size == null ? -1 : size;
+    }
+
+    @Override
+    public synchronized void put(String path, long size) {
+        fileList.put(path, size);
+    }
+
+    @Override
+    public synchronized void remove(String path) {
+        fileList.remove(path);
+    }
+
+    @Override
+    public synchronized int size() {
+        return fileList.size();
+    }
+
+    @Override
+    public synchronized void markSeen(String path) {
+        existFileList.add(path);
+    }
+
+    @Override
+    public synchronized void unmarkSeen(String path) {
+        existFileList.remove(path);
+    }
+
+    @Override
+    public synchronized int removeUnseen(TrackingJournal journal) throws IOException {
+        int removed = 0;
+        for (Iterator<String> iter = fileList.keySet().iterator(); iter.hasNext();) {
+            final String filename = iter.next();
+            if (!(existFileList.contains(filename))) {
+                iter.remove();
+                removed++;
+                if (journal != null) {
+                    journal.remove(filename);
+                }
+            }
+        }
+        existFileList.clear();
+        return removed;
+    }
+
+    @Override
+    public synchronized TrackingStore copy() {
+        return new MapTrackingStore(new HashMap<>(fileList), new HashSet<String>());
+    }
+
+    /**
+     * Write the map with ObjectOutputStream into a temporary file moved over
+     * the snapshot, so a crash never leaves a partial snapshot behind.
+     *
+     * @param snapshot
+     * @throws IOException
+     */
+    @Override
+    public synchronized void writeSnapshot(Path snapshot) throws IOException {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp.toFile())))) {
+            objectOut.writeObject(fileList instanceof HashMap ? fileList : new HashMap<>(fileList));
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void readSnapshot(Path snapshot) throws IOException {
+        fileList = readMap(snapshot);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the fileList
+     */
+    public synchronized Map<String, Long> getFileList() {
+        return fileList;
+    }
+
+    /**
+     * @param fileList the fileList to set
+     */
+    public synchronized void setFileList(Map<String, Long> fileList) {
+        this.fileList = fileList;
+    }
+
+    /**
+     * @return the existFileList
+     */
+    public synchronized Set<String> getExistFileList() {
+        return existFileList;
+    }
+
+    /**
+     * @param existFileList the existFileList to set
+     */
+    public synchronized void setExistFileList(Set<String> existFileList) {
+        this.existFileList = existFileList;
+    }
+
+    /**
+     * @param snapshot written by writeSnapshot
+     * @return map of processed files
+     * @throws IOException
+     */
+    public static Map<String, Long> readMap(Path snapshot) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                new FileInputStream(snapshot.toFile())))) {
+            return (HashMap<String, Long>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected content in " + snapshot, e);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of the TrackingStore of processed files. Every change is
+ * appended as a (path, size) record instead of writing the whole store again,
+ * and the store is compacted from time to time into the snapshot file, in the
+ * format of the store.
+ *
+ * Journal files live next to the snapshot as [snapshot].journal.[generation].
+ * Compacting rolls to a new generation and writes the snapshot in background;
+ * older generations are deleted once the snapshot is in place. Recovery loads
+ * the snapshot and replays every remaining generation in order, records being
+ * absolute values replaying one already included in the snapshot is harmless.
+ */
+public class TrackingJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackingJournal.class);
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte REMOVE_FINGERPRINT = 3;
+
+    private final Path snapshot;
+    private final String prefix;
+    private final ExecutorService compactor;
+    private DataOutputStream out;
+    private long generation;
+    private long records;
+    private Future<?> compaction;
+
+    /**
+     *
+     * @param snapshot path of the snapshot file of the store
+     */
+    public TrackingJournal(Path snapshot) {
+        this.snapshot = snapshot;
+        this.prefix = snapshot.getFileName().toString() + ".journal.";
+        this.compactor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("ftp-source-journal-compactor-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Replay every journal generation found on disk over store, in order.
+     *
+     * @param store loaded from the snapshot, updated in place
+     * @return number of records replayed
+     * @throws IOException
+     */
+    public synchronized long replay(TrackingStore store) throws IOException {
+        flush();
+        long replayed = 0;
+        for (Path journal : listGenerations()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(journal.toFile())))) {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == PUT) {
+                        String path = in.readUTF();
+                        store.put(path, in.readLong());
+                    } else if (type == REMOVE) {
+                        store.remove(in.readUTF());
+                    } else if (type == REMOVE_FINGERPRINT) {
+                        if (!(store instanceof FingerprintTrackingStore)) {
+                            throw new IOException("Removal by fingerprint in " + journal + " can not be applied to "
+                                    + store.getClass().getSimpleName());
+                        }
+                        ((FingerprintTrackingStore) store).removeFingerprint(in.readLong());
+                    } else {
+                        throw new IOException("Unknown record type " + type + " in " + journal);
+                    }
+                    replayed++;
+                }
+            } catch (EOFException | UTFDataFormatException e) {
+                // end of journal, a truncated last record is dropped
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Start appending to a new generation, after any found on disk. Called on
+     * the first record, so nothing is created until the store changes.
+     *
+     * @throws IOException
+     */
+    public synchronized void open() throws IOException {
+        if (out != null) {
+            return;
+        }
+        List<Path> generations = listGenerations();
+        if (!generations.isEmpty()) {
+            generation = generationOf(generations.get(generations.size() - 1));
+        }
+        roll();
+    }
+
+    /**
+     * Record the size processed of a file.
+     *
+     * @param path of the file
+     * @param size processed
+     * @throws IOException
+     */
+    public synchronized void put(String path, long size) throws IOException {
+        open();
+        out.writeByte(PUT);
+        out.writeUTF(path);
+        out.writeLong(size);
+        out.flush();
+        records++;
+    }
+
+    /**
+     * Record a file is not tracked anymore.
+     *
+     * @param path of the file
+     * @throws IOException
+     */
+    public synchronized void remove(String path) throws IOException {
+        open();
+        out.writeByte(REMOVE);
+        out.writeUTF(path);
+        out.flush();
+        records++;
+    }
+
+    /**
+     * Record a file is not tracked anymore, by the fingerprint of its path,
+     * for stores not keeping paths.
+     *
+     * @param fingerprint of the path of the file
+     * @throws IOException
+     */
+    public synchronized void removeFingerprint(long fingerprint) throws IOException {
+        open();
+        out.writeByte(REMOVE_FINGERPRINT);
+        out.writeLong(fingerprint);
+        out.flush();
+        records++;
+    }
+
+    /**
+     * @return number of records appended since the last compaction
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return true if a compaction is being written in background
+     */
+    public synchronized boolean isCompacting() {
+        return compaction != null && !compaction.isDone();
+    }
+
+    /**
+     * Roll to a new generation and write a copy of store as the snapshot in
+     * background. Ignored if the previous compaction has not finished yet.
+     *
+     * The copy is taken right after rolling, so it holds every change of the
+     * generations it replaces as long as callers change store and append the
+     * change here under one lock also held around this call.
+     *
+     * @param store processed files
+     * @throws IOException
+     */
+    public synchronized void compact(TrackingStore store) throws IOException {
+        if (isCompacting()) {
+            return;
+        }
+        final long covered = roll();
+        final TrackingStore copy = store.copy();
+        compaction = compactor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    copy.writeSnapshot(snapshot);
+                    deleteGenerations(covered);
+                } catch (IOException e) {
+                    LOGGER.error("Error compacting journal of " + snapshot, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write store as the snapshot now, then drop every older generation.
+     * Callers hold the same lock as for compact, so store does not change
+     * while it is written and needs no copy.
+     *
+     * @param store processed files
+     * @throws IOException
+     */
+    public synchronized void compactNow(TrackingStore store) throws IOException {
+        awaitCompaction();
+        long covered = roll();
+        store.writeSnapshot(snapshot);
+        deleteGenerations(covered);
+    }
+
+    /**
+     * Flush pending records to the file.
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Wait for a running compaction and close the current generation, which
+     * is removed if nothing was appended to it.
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        awaitCompaction();
+        compactor.shutdown();
+        if (out != null) {
+            out.close();
+            out = null;
+            if (records == 0) {
+                Files.deleteIfExists(resolveGeneration(generation));
+            }
+        }
+    }
+
+    /**
+     * Close the current generation and open the next one.
+     *
+     * @return the generation closed, the last one a snapshot taken now covers
+     * @throws IOException
+     */
+    private long roll() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        long closed = generation;
+        generation++;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                resolveGeneration(generation).toFile(), true)));
+        records = 0;
+        return closed;
+    }
+
+    /**
+     * Wait for a compaction running in background, if any.
+     *
+     * @throws IOException
+     */
+    public synchronized void awaitCompaction() throws IOException {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (Exception e) {
+            throw new IOException("Error waiting for compaction of " + snapshot, e);
+        }
+    }
+
+    private void deleteGenerations(long upTo) throws IOException {
+        for (Path journal : listGenerations()) {
+            if (generationOf(journal) <= upTo) {
+                Files.deleteIfExists(journal);
+            }
+        }
+    }
+
+    private Path resolveGeneration(long gen) {
+        return snapshot.resolveSibling(prefix + gen);
+    }
+
+    private long generationOf(Path journal) {
+        return Long.parseLong(journal.getFileName().toString().substring(prefix.length()));
+    }
+
+    /**
+     * @return journal files of the snapshot sorted by generation
+     */
+    private List<Path> listGenerations() {
+        List<Path> generations = new ArrayList<>();
+        File folder = snapshot.toAbsolutePath().getParent().toFile();
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return generations;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(prefix) && name.substring(prefix.length()).matches("[0-9]+")) {
+                generations.add(file.toPath());
+            }
+        }
+        Collections.sort(generations, new Comparator<Path>() {
+            @Override
+            public int compare(Path a, Path b) {
+                return Long.compare(generationOf(a), generationOf(b));
+            }
+        });
+        return generations;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Keeps the size processed of every file tracked by a source, and which of
+ * them were still found in the server during the current poll.
+ *
+ * Implementations must be safe to use from several threads.
+ */
+public interface TrackingStore {
+
+    /**
+     * @param path of the file
+     * @return size processed of the file, or -1 if it is not tracked
+     */
+    long get(String path);
+
+    /**
+     * @param path of the file
+     * @param size processed
+     */
+    void put(String path, long size);
+
+    /**
+     * @param path of the file
+     */
+    void remove(String path);
+
+    /**
+     * @return number of files tracked
+     */
+    int size();
+
+    /**
+     * Mark a file as found in the server during the current poll.
+     *
+     * @param path of the file
+     */
+    void markSeen(String path);
+
+    /**
+     * Forget a file was found during the current poll, it will be removed by
+     * removeUnseen and discovered again as a new file.
+     *
+     * @param path of the file
+     */
+    void unmarkSeen(String path);
+
+    /**
+     * Remove every file not marked since the previous call, recording each
+     * removal in journal, and clear the marks for the next poll.
+     *
+     * @param journal where removals are recorded, may be null
+     * @return number of files removed
+     * @throws IOException if journal could not be written
+     */
+    int removeUnseen(TrackingJournal journal) throws IOException;
+
+    /**
+     * @return copy of the files tracked, not affected by later changes
+     */
+    TrackingStore copy();
+
+    /**
+     * Write the files tracked into snapshot.
+     *
+     * @param snapshot path of the file
+     * @throws IOException
+     */
+    void writeSnapshot(Path snapshot) throws IOException;
+
+    /**
+     * Replace the files tracked by the content of snapshot.
+     *
+     * @param snapshot path of the file
+     * @throws IOException
+     */
+    void readSnapshot(Path snapshot) throws IOException;
+
+    /**
+     * Release resources held by the store.
+     */
+    void close();
+}
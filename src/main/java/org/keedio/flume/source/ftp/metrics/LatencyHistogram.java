@@ -0,0 +1,148 @@
+/*
+    KEEDIO
+*/
+package org.keedio.flume.source.ftp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in microseconds, recorded without locks from any
+ * thread. Buckets grow in powers of two, each split in SUB_BUCKETS linear
+ * ones, so percentiles are reported with an error under 1 / SUB_BUCKETS of
+ * the value.
+ *
+ * Samples are kept in windows of windowMs; percentiles and max cover the
+ * current window and the previous one, so they follow recent behaviour
+ * instead of the whole life of the source.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long windowMs;
+    private volatile Window current;
+    private volatile Window previous;
+
+    /**
+     * Samples of one window.
+     */
+    private static class Window {
+
+        private final long start;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     *
+     * @param windowMs length of each window of samples
+     */
+    public LatencyHistogram(long windowMs) {
+        this.windowMs = Math.max(1, windowMs);
+        long now = System.currentTimeMillis();
+        this.current = new Window(now);
+        this.previous = new Window(now);
+    }
+
+    /**
+     * @param micros latency to record, negative values count as 0
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        Window window = window();
+        window.counts.incrementAndGet(index(value));
+        long max = window.max.get();
+        while (value > max && !window.max.compareAndSet(max, value)) {
+            max = window.max.get();
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return latency in microseconds under which that share of the samples
+     * falls, 0 without samples
+     */
+    public long percentile(double percentile) {
+        Window window = window();
+        Window last = previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = window.counts.get(i) + (last != window ? last.counts.get(i) : 0);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return highest latency recorded in microseconds
+     */
+    public long max() {
+        Window window = window();
+        Window last = previous;
+        return Math.max(window.max.get(), last != window ? last.max.get() : 0);
+    }
+
+    /**
+     * @return current window, rotating windows if it is over
+     */
+    private Window window() {
+        Window window = current;
+        long now = System.currentTimeMillis();
+        if (now - window.start < windowMs) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (now - window.start >= windowMs) {
+                previous = now - window.start < 2 * windowMs ? window : new Window(now);
+                window = new Window(now);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    /**
+     * @return bucket of value
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return highest value of bucket
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
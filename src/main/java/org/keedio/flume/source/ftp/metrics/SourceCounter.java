@@ -11,41 +11,36 @@ import org.apache.flume.instrumentation.MonitoredCounterGroup;
  */
 public class SourceCounter extends MonitoredCounterGroup implements SourceCounterMBean {
     
-    private static long files_count;    
-    private static long filesProcCount ;  
-    private static long filesProcCountError;
-    private static long eventCount;
-    private static long sendThroughput;
-    private static long start_time;
-    private static long last_sent;
-    private static long countModProc;
-    private static long bytesProcessed;
-    private static long KbProcessed;
-    private static long MbProcessed;
-            
-   
-    
-    private static  final String[] ATTRIBUTES = { "files_count" , "filesProcCount", "filesProcCountError", 
-        "eventCount","start_time","last_sent", "sendThroughput", "countModProc", "bytesProcessed", "KbProcessed", "MbProcessed"
-    };                 
+    private static final String FILES_COUNT = "files_count";
+    private static final String FILES_PROC_COUNT = "filesProcCount";
+    private static final String FILES_PROC_COUNT_ERROR = "filesProcCountError";
+    private static final String EVENT_COUNT = "eventCount";
+    private static final String LAST_SENT = "last_sent";
+    private static final String COUNT_MOD_PROC = "countModProc";
+    private static final String BYTES_PROCESSED = "bytesProcessed";
+
+    private static  final String[] ATTRIBUTES = { FILES_COUNT, FILES_PROC_COUNT, FILES_PROC_COUNT_ERROR,
+        EVENT_COUNT, LAST_SENT, COUNT_MOD_PROC, BYTES_PROCESSED
+    };
+
+    private static final long LATENCY_WINDOW_MS = 5 * 60 * 1000;
+
+    private final long start_time;
+    private final LatencyHistogram listLatency = new LatencyHistogram(LATENCY_WINDOW_MS);
+    private final LatencyHistogram firstByteLatency = new LatencyHistogram(LATENCY_WINDOW_MS);
+    private final LatencyHistogram transferLatency = new LatencyHistogram(LATENCY_WINDOW_MS);
+    private final LatencyHistogram commitLatency = new LatencyHistogram(LATENCY_WINDOW_MS);
         
     /**
+     * Counters belong to each instance, kept by MonitoredCounterGroup in
+     * atomic longs, so every source reports its own numbers and may update
+     * them from several threads.
      *
      * @param name
      */
     public SourceCounter(String name){
        super(MonitoredCounterGroup.Type.SOURCE, name, ATTRIBUTES);
-       files_count = 0;
-       filesProcCount = 0;
-       filesProcCountError = 0;
-       eventCount = 0;
-       last_sent = 0;
        start_time = System.currentTimeMillis();
-       sendThroughput = 0;
-       countModProc = 0;
-       bytesProcessed = 0;
-       KbProcessed = 0;
-       MbProcessed = 0;
     }
             
     /**
@@ -53,7 +48,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public long getFilesCount(){
-        return files_count;
+        return get(FILES_COUNT);
     }
     
     /**
@@ -61,7 +56,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public void  incrementFilesCount(){
-        files_count++;
+        increment(FILES_COUNT);
     }
     
     /**
@@ -69,7 +64,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public long getFilesProcCount(){
-        return filesProcCount;
+        return get(FILES_PROC_COUNT);
     }
     
     /**
@@ -77,7 +72,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public void incrementFilesProcCount(){
-        filesProcCount++;
+        increment(FILES_PROC_COUNT);
     }
     
      /**
@@ -85,7 +80,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public long getFilesProcCountError(){
-        return filesProcCountError;
+        return get(FILES_PROC_COUNT_ERROR);
     }
     
     /**
@@ -93,7 +88,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     */
     @Override
     public void incrementFilesProcCountError(){
-        filesProcCountError++;
+        increment(FILES_PROC_COUNT_ERROR);
     }
     
     /**
@@ -101,12 +96,8 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public void incrementEventCount(){
-        last_sent = System.currentTimeMillis();
-        eventCount++;
-       if (last_sent - start_time >= 1000) {
-           long secondsElapsed = (last_sent - start_time) / 1000;
-           sendThroughput = eventCount / secondsElapsed;
-        }
+        set(LAST_SENT, System.currentTimeMillis());
+        increment(EVENT_COUNT);
     }
     
     /**
@@ -116,23 +107,24 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
     
     @Override
     public long getEventCount(){
-        return eventCount;
+        return get(EVENT_COUNT);
     }
     
     /**
      * 
-     * @return 
+     * @return events per second since the counter was created
      */
     @Override
     public long getSendThroughput() {
-        return sendThroughput;
+        long secondsElapsed = (getLastSent() - start_time) / 1000;
+        return secondsElapsed > 0 ? getEventCount() / secondsElapsed : 0;
     }
     
     /**
      */
     @Override
     public void incrementCountModProc(){
-        countModProc++;
+        increment(COUNT_MOD_PROC);
     }
     
     /**
@@ -141,7 +133,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public long getCountModProc(){
-        return countModProc;
+        return get(COUNT_MOD_PROC);
     }
     
     /**
@@ -150,7 +142,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public long getLastSent(){
-        return last_sent;
+        return get(LAST_SENT);
     }
     
     /**
@@ -159,7 +151,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public void incrementCountSizeProc(long size){
-        bytesProcessed+= size;
+        addAndGet(BYTES_PROCESSED, size);
     }
 
     /**
@@ -168,7 +160,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public long getCountSizeProc(){
-        return bytesProcessed;
+        return get(BYTES_PROCESSED);
     }
     
     /**
@@ -177,8 +169,7 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public long getCountSizeProcKb(){
-        KbProcessed = getCountSizeProc() / 1024;
-        return KbProcessed;
+        return getCountSizeProc() / 1024;
     }
     
     /**
@@ -187,11 +178,190 @@ public class SourceCounter extends MonitoredCounterGroup implements SourceCounte
      */
     @Override
     public long getCountSizeProcMb(){
-        MbProcessed = getCountSizeProc() / (1024 * 1024);
-        return MbProcessed;
+        return getCountSizeProc() / (1024 * 1024);
+    }
+
+    /**
+     *
+     * @param micros
+     */
+    @Override
+    public void recordListLatency(long micros){
+        listLatency.record(micros);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getListLatencyP50(){
+        return toMillis(listLatency.percentile(0.50));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getListLatencyP95(){
+        return toMillis(listLatency.percentile(0.95));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getListLatencyP99(){
+        return toMillis(listLatency.percentile(0.99));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getListLatencyMax(){
+        return toMillis(listLatency.max());
+    }
+
+    /**
+     *
+     * @param micros
+     */
+    @Override
+    public void recordFirstByteLatency(long micros){
+        firstByteLatency.record(micros);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getFirstByteLatencyP50(){
+        return toMillis(firstByteLatency.percentile(0.50));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getFirstByteLatencyP95(){
+        return toMillis(firstByteLatency.percentile(0.95));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getFirstByteLatencyP99(){
+        return toMillis(firstByteLatency.percentile(0.99));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getFirstByteLatencyMax(){
+        return toMillis(firstByteLatency.max());
+    }
+
+    /**
+     *
+     * @param micros
+     */
+    @Override
+    public void recordTransferLatency(long micros){
+        transferLatency.record(micros);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getTransferLatencyP50(){
+        return toMillis(transferLatency.percentile(0.50));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getTransferLatencyP95(){
+        return toMillis(transferLatency.percentile(0.95));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getTransferLatencyP99(){
+        return toMillis(transferLatency.percentile(0.99));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getTransferLatencyMax(){
+        return toMillis(transferLatency.max());
+    }
+
+    /**
+     *
+     * @param micros
+     */
+    @Override
+    public void recordCommitLatency(long micros){
+        commitLatency.record(micros);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getCommitLatencyP50(){
+        return toMillis(commitLatency.percentile(0.50));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getCommitLatencyP95(){
+        return toMillis(commitLatency.percentile(0.95));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getCommitLatencyP99(){
+        return toMillis(commitLatency.percentile(0.99));
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public double getCommitLatencyMax(){
+        return toMillis(commitLatency.max());
+    }
+
+    private static double toMillis(long micros){
+        return micros / 1000.0;
     }
-       
-    
-    
-   
 }
@@ -97,4 +97,124 @@ public interface SourceCounterMBean {
      * @return
      */
     public long getCountSizeProcMb();
-}
\ No newline at end of file
+
+    /**
+     *
+     * @param micros taken listing a directory
+     */
+    public void recordListLatency(long micros);
+
+    /**
+     *
+     * @return median latency in ms of listing a directory, over the last minutes
+     */
+    public double getListLatencyP50();
+
+    /**
+     *
+     * @return 95th percentile latency in ms of listing a directory, over the last minutes
+     */
+    public double getListLatencyP95();
+
+    /**
+     *
+     * @return 99th percentile latency in ms of listing a directory, over the last minutes
+     */
+    public double getListLatencyP99();
+
+    /**
+     *
+     * @return max latency in ms of listing a directory, over the last minutes
+     */
+    public double getListLatencyMax();
+
+    /**
+     *
+     * @param micros taken retrieving a file until its first byte
+     */
+    public void recordFirstByteLatency(long micros);
+
+    /**
+     *
+     * @return median latency in ms of retrieving a file until its first byte, over the last minutes
+     */
+    public double getFirstByteLatencyP50();
+
+    /**
+     *
+     * @return 95th percentile latency in ms of retrieving a file until its first byte, over the last minutes
+     */
+    public double getFirstByteLatencyP95();
+
+    /**
+     *
+     * @return 99th percentile latency in ms of retrieving a file until its first byte, over the last minutes
+     */
+    public double getFirstByteLatencyP99();
+
+    /**
+     *
+     * @return max latency in ms of retrieving a file until its first byte, over the last minutes
+     */
+    public double getFirstByteLatencyMax();
+
+    /**
+     *
+     * @param micros taken transferring a whole file
+     */
+    public void recordTransferLatency(long micros);
+
+    /**
+     *
+     * @return median latency in ms of transferring a whole file, over the last minutes
+     */
+    public double getTransferLatencyP50();
+
+    /**
+     *
+     * @return 95th percentile latency in ms of transferring a whole file, over the last minutes
+     */
+    public double getTransferLatencyP95();
+
+    /**
+     *
+     * @return 99th percentile latency in ms of transferring a whole file, over the last minutes
+     */
+    public double getTransferLatencyP99();
+
+    /**
+     *
+     * @return max latency in ms of transferring a whole file, over the last minutes
+     */
+    public double getTransferLatencyMax();
+
+    /**
+     *
+     * @param micros taken delivering a batch of events to the channel
+     */
+    public void recordCommitLatency(long micros);
+
+    /**
+     *
+     * @return median latency in ms of delivering a batch of events to the channel, over the last minutes
+     */
+    public double getCommitLatencyP50();
+
+    /**
+     *
+     * @return 95th percentile latency in ms of delivering a batch of events to the channel, over the last minutes
+     */
+    public double getCommitLatencyP95();
+
+    /**
+     *
+     * @return 99th percentile latency in ms of delivering a batch of events to the channel, over the last minutes
+     */
+    public double getCommitLatencyP99();
+
+    /**
+     *
+     * @return max latency in ms of delivering a batch of events to the channel, over the last minutes
+     */
+    public double getCommitLatencyMax();
+}
@@ -5,6 +5,7 @@ package org.keedio.flume.source.ftp.source;
 
 import java.util.*;
 
+import org.apache.flume.ChannelException;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
 import org.apache.flume.EventDeliveryException;
@@ -14,28 +15,55 @@ import org.apache.flume.event.SimpleEvent;
 import org.keedio.flume.source.ftp.client.filters.KeedioFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.flume.ChannelException;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ByteArrayOutputStream;
 
+import org.keedio.flume.source.ftp.source.utils.AdaptiveDelay;
+import org.keedio.flume.source.ftp.source.utils.ChunkReader;
+import org.keedio.flume.source.ftp.source.utils.DiscoveredFile;
+import org.keedio.flume.source.ftp.source.utils.EventBatcher;
+import org.keedio.flume.source.ftp.source.utils.FirstByteInputStream;
+import org.keedio.flume.source.ftp.source.utils.LineSplitter;
+import org.keedio.flume.source.ftp.source.utils.MultilineAggregator;
+import org.keedio.flume.source.ftp.source.utils.OffsetCheckpoint;
+import org.keedio.flume.source.ftp.source.utils.ParallelDiscovery;
 import org.keedio.flume.source.ftp.source.utils.FTPSourceEventListener;
 
 import org.keedio.flume.source.ftp.metrics.SourceCounter;
 
 import java.util.List;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-
 import org.keedio.flume.source.ftp.client.factory.SourceFactory;
 import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.KeedioSourcePool;
+import org.keedio.flume.source.ftp.client.codec.Decompressor;
+import org.keedio.flume.source.ftp.client.codec.DecompressorRegistry;
+import org.keedio.flume.source.ftp.client.codec.GzipMemberInputStream;
+import org.keedio.flume.source.ftp.client.tracking.TrackingStore;
 
-import java.nio.charset.Charset;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.NullOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.flume.source.AbstractSource;
-import java.util.zip.GZIPInputStream;
 
 /**
  * @author luislazaro lalazaro@keedio.com - KEEDIO
@@ -53,6 +81,16 @@ public class Source extends AbstractSource implements Configurable, PollableSour
   private SourceCounter sourceCounter;
   private String workingDirectory;
   private KeedioFileFilter keedioFileFilter;
+  private KeedioSourcePool connectionPool;
+  private ExecutorService transferExecutor;
+  private ExecutorService discoveryExecutor;
+  private ExecutorService inflateExecutor;
+  private volatile ScheduledExecutorService discoveryScheduler;
+  private final BlockingQueue<DiscoveredFile<Object>> transferQueue = new LinkedBlockingQueue<>();
+  private final Set<String> queuedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final Lock connectionLock = new ReentrantLock(true);
+  private final Map<String, Decompressor> detectedCodecs = new ConcurrentHashMap<>();
+  private volatile long nextDiscovery;
 
   /**
    * Request keedioSource to the factory
@@ -81,14 +119,69 @@ public class Source extends AbstractSource implements Configurable, PollableSour
     workingDirectory = keedioSource.getWorkingDirectory();
     keedioFileFilter = new KeedioFileFilter(keedioSource.getKeedioFilterRegex());
     keedioSource.checkPreviousMap();
+
+    int maxConnections = keedioSource.getMaxConnections();
+    int discoveryThreads = keedioSource.getDiscoveryThreads();
+    if (maxConnections > 1 || discoveryThreads > 1) {
+      connectionPool = new KeedioSourcePool(context, Math.max(maxConnections, discoveryThreads), keedioSource);
+    }
+    if (maxConnections > 1) {
+      transferExecutor = Executors.newFixedThreadPool(maxConnections,
+        new ThreadFactoryBuilder().setNameFormat("ftp-source-" + getName() + "-transfer-%d").build());
+    }
+    if (discoveryThreads > 1) {
+      discoveryExecutor = Executors.newFixedThreadPool(discoveryThreads,
+        new ThreadFactoryBuilder().setNameFormat("ftp-source-" + getName() + "-discovery-%d").build());
+    }
+    if (keedioSource.getInflateThreads() > 1) {
+      inflateExecutor = Executors.newFixedThreadPool(keedioSource.getInflateThreads(),
+        new ThreadFactoryBuilder().setNameFormat("ftp-source-" + getName() + "-inflate-%d").build());
+    }
   }
 
   /**
-   * @return Status , process source configured from context
+   * Transfer the files queued by discovery. Discovery runs on its own
+   * scheduler once the source is started; if it is not, a discovery pass is
+   * made here first.
+   *
+   * @return Status , READY if files were transferred, BACKOFF if none was queued
    * @throws org.apache.flume.EventDeliveryException
    */
   @Override
   public PollableSource.Status process() throws EventDeliveryException {
+    if (discoveryScheduler == null) {
+      discover();
+    }
+
+    List<DiscoveredFile<Object>> queuedFiles = new ArrayList<>();
+    transferQueue.drainTo(queuedFiles);
+    if (queuedFiles.isEmpty()) {
+      return PollableSource.Status.BACKOFF;   //inform the runner thread to back off for a bit
+    }
+
+    try {
+      transferElements(queuedFiles);
+    } finally {
+      for (DiscoveredFile<Object> file : queuedFiles) {
+        queuedPaths.remove(file.getPath());
+      }
+    }
+    keedioSource.syncMap();
+    return PollableSource.Status.READY;     //source was successfully able to generate events
+  }
+
+  /**
+   * discover: one pass over the remote directories, queueing the files with
+   * data not processed yet unless they are already queued or being
+   * transferred. If the pass fails the source reconnects, and after
+   * ATTEMPTS_MAX failed reconnections passes are skipped for EXTRA_DELAY.
+   *
+   * @return true if new or grown files were queued
+   */
+  private boolean discover() {
+    if (System.currentTimeMillis() < nextDiscovery) {
+      return false;
+    }
     try {
       if (workingDirectory == null) {
         LOGGER.info("property workdir is null, setting to default");
@@ -96,45 +189,56 @@ public class Source extends AbstractSource implements Configurable, PollableSour
       }
 
       LOGGER.info("Actual dir:  " + workingDirectory + " files: "
-        + keedioSource.getFileList().size());
+        + keedioSource.getTrackingStore().size());
 
-      discoverElements(keedioSource, workingDirectory, "", 0, keedioSource.isRecursive());
+      List<DiscoveredFile<Object>> discovered = new ArrayList<>();
+      if (discoveryExecutor != null) {
+        discoverElementsParallel(workingDirectory, keedioSource.isRecursive(), discovered);
+      } else {
+        discoverElements(keedioSource, workingDirectory, "", 0, keedioSource.isRecursive(), discovered);
+      }
+      for (DiscoveredFile<Object> file : discovered) {
+        if (queuedPaths.add(file.getPath())) {
+          transferQueue.add(file);
+        }
+      }
       keedioSource.cleanList(); //clean list according existing actual files
-      keedioSource.getExistFileList().clear();
+      forgetDetectedCodecs();
+      keedioSource.syncMap();
+      return !discovered.isEmpty();
     } catch (IOException e) {
-      LOGGER.error("Exception thrown in process, try to reconnect " + counterConnect, e);
-
-      if (!keedioSource.connect()) {
-        counterConnect++;
-      } else {
-        keedioSource.checkPreviousMap();
+      ScheduledExecutorService scheduler = discoveryScheduler;
+      if (Thread.currentThread().isInterrupted() || (scheduler != null && scheduler.isShutdown())) {
+        LOGGER.info("Discovery interrupted, source is stopping");
+        return false;
       }
+      LOGGER.error("Exception thrown in discovery, try to reconnect " + counterConnect, e);
 
-      if (counterConnect < ATTEMPTS_MAX) {
-        process();
-      } else {
-        LOGGER.error("Server connection closed without indication, reached limit reconnections " + counterConnect);
-        try {
-          Thread.sleep(keedioSource.getRunDiscoverDelay() + EXTRA_DELAY);
+      connectionLock.lock();
+      try {
+        if (keedioSource.connect()) {
           counterConnect = 0;
-        } catch (InterruptedException ce) {
-          LOGGER.error("InterruptedException", ce);
+        } else {
+          counterConnect++;
         }
+      } finally {
+        connectionLock.unlock();
       }
-    }
-    keedioSource.saveMap();
 
-    try {
-      Thread.sleep(keedioSource.getRunDiscoverDelay());
-      return PollableSource.Status.READY;     //source was successfully able to generate events
-    } catch (InterruptedException inte) {
-      LOGGER.error("Exception thrown in process while putting to sleep", inte);
-      return PollableSource.Status.BACKOFF;   //inform the runner thread to back off for a bit
+      if (counterConnect >= ATTEMPTS_MAX) {
+        LOGGER.error("Server connection closed without indication, reached limit reconnections " + counterConnect);
+        nextDiscovery = System.currentTimeMillis() + keedioSource.getRunDiscoverDelay() + EXTRA_DELAY;
+        counterConnect = 0;
+      }
+      return false;
     }
   }
 
   /**
-   * @return void
+   * Start discovering files every run.discover.delay, whatever the time
+   * taken by transfers, or at the rate of an AdaptiveDelay if
+   * run.discover.adaptive. A delay below 1 ms, which used to mean polling
+   * without pause, discovers every ms.
    */
   @Override
   public synchronized void start() {
@@ -142,6 +246,53 @@ public class Source extends AbstractSource implements Configurable, PollableSour
     LOGGER.info("Source {} starting. Metrics: {}", getName(), sourceCounter);
     super.start();
     sourceCounter.start();
+
+    discoveryScheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("ftp-source-" + getName() + "-scheduler").build());
+    if (keedioSource.isRunDiscoverAdaptive()) {
+      scheduleAdaptiveDiscovery(discoveryScheduler, new AdaptiveDelay(keedioSource.getRunDiscoverDelay(),
+        keedioSource.getRunDiscoverDelayMin(), keedioSource.getRunDiscoverDelayMax()), 0);
+      return;
+    }
+    discoveryScheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          discover();
+        } catch (RuntimeException e) {
+          LOGGER.error("Unexpected error discovering files", e);
+        }
+      }
+    }, 0, Math.max(1, keedioSource.getRunDiscoverDelay()), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Schedule a discovery pass that schedules the next one, the delay between
+   * their starts adapting to whether the pass found files.
+   *
+   * @param scheduler running the passes
+   * @param delay between passes
+   * @param initialDelay in ms before this pass
+   */
+  private void scheduleAdaptiveDiscovery(final ScheduledExecutorService scheduler, final AdaptiveDelay delay,
+                                         long initialDelay) {
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.currentTimeMillis();
+        boolean found = false;
+        try {
+          found = discover();
+        } catch (RuntimeException e) {
+          LOGGER.error("Unexpected error discovering files", e);
+        }
+        long next = delay.next(found);
+        LOGGER.debug("Next discovery in " + next + " ms");
+        if (!scheduler.isShutdown()) {
+          scheduleAdaptiveDiscovery(scheduler, delay, Math.max(0, start + next - System.currentTimeMillis()));
+        }
+      }
+    }, initialDelay, TimeUnit.MILLISECONDS);
   }
 
   /**
@@ -149,7 +300,15 @@ public class Source extends AbstractSource implements Configurable, PollableSour
    */
   @Override
   public synchronized void stop() {
-    keedioSource.saveMap();
+    shutdownExecutor(discoveryScheduler);
+    discoveryScheduler = null;
+    shutdownExecutor(discoveryExecutor);
+    shutdownExecutor(transferExecutor);
+    shutdownExecutor(inflateExecutor);
+    if (connectionPool != null) {
+      connectionPool.close();
+    }
+    keedioSource.closeMap();
     if (keedioSource.isConnected()) {
       keedioSource.disconnect();
     }
@@ -157,6 +316,24 @@ public class Source extends AbstractSource implements Configurable, PollableSour
     super.stop();
   }
 
+  /**
+   * Interrupt the tasks of executor and wait for them to finish.
+   *
+   * @param executor may be null
+   */
+  private void shutdownExecutor(ExecutorService executor) {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(EXTRA_DELAY, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      LOGGER.error("Interrupted waiting for tasks to stop", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * discoverElements: find files to process them
    *
@@ -167,19 +344,28 @@ public class Source extends AbstractSource implements Configurable, PollableSour
    * @param currentDir,  actual dir in the recursive method
    * @param level,       deep to search
    * @param recursive    Whether to search sub-directories recursively
+   * @param discovered   where files with data not processed yet are added
    * @throws IOException
    */
   // @SuppressWarnings("UnnecessaryContinue")
   private <T> void discoverElements(KeedioSource keedioSource, String parentDir, String currentDir, int level,
-                                   boolean recursive) throws IOException {
-
-    long position = 0L;
+                                   boolean recursive, List<DiscoveredFile<T>> discovered) throws IOException {
 
     String dirToList = parentDir;
     if (!("").equals(currentDir)) {
       dirToList += "/" + currentDir;
     }
-    List<T> list = keedioSource.listElements(dirToList, keedioFileFilter);
+    // the connection is held for one listing at a time, so transfers are not
+    // kept waiting for the whole pass
+    List<T> list;
+    connectionLock.lock();
+    try {
+      long start = System.nanoTime();
+      list = keedioSource.listElements(dirToList, keedioFileFilter);
+      sourceCounter.recordListLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    } finally {
+      connectionLock.unlock();
+    }
     if (!(list.isEmpty())) {
 
       for (T element : list) {
@@ -191,105 +377,382 @@ public class Source extends AbstractSource implements Configurable, PollableSour
         if (keedioSource.isDirectory(element)) {
           if(recursive) {
             LOGGER.info("Traversing element recursively: " + "[" + elementName + "]");
-            keedioSource.changeToDirectory(parentDir);
-            discoverElements(keedioSource, dirToList, elementName, level + 1, recursive);
+            discoverElements(keedioSource, dirToList, elementName, level + 1, recursive, discovered);
           }
         } else if (keedioSource.isFile(element)) { //element is a regular file
-          keedioSource.changeToDirectory(dirToList);
-
-          // Check whether user has specified that file is not to be processed while in use
-          if(!keedioSource.isProcessInUse()) {
-            // If file is currently being written to, skip this file until it is finalized
-            if(isBeingWritten(keedioSource.getModifiedTime(element), keedioSource.getProcessInUseTimeout())) {
-              LOGGER.info("File " + elementName + " is still being written. " +
-                      "Will skip for now and re-read when write is completed.");
-              continue;
-            }
+          DiscoveredFile<T> file = inspectFile(keedioSource, dirToList, elementName, element);
+          if (file != null) {
+            discovered.add(file);
           }
+        } else if (keedioSource.isLink(element)) {
+          LOGGER.info(elementName + " is a link of " + this.keedioSource.getLink(element) + " could not retrieve size");
+        } else {
+          LOGGER.info(elementName + " unknown type of file");
+        }
+      }
+    }
+  }
 
-          keedioSource.getExistFileList().add(dirToList + "/" + elementName);  //control of deleted files in server
-
-          //test if file is new in collection
-          if (!(keedioSource.getFileList().containsKey(dirToList + "/" + elementName))) { //new file
-            sourceCounter.incrementFilesCount(); //include all files, even not yet processed
-            position = 0L;
-            LOGGER.info("Discovered: " + elementName + " ,size: " + keedioSource.getObjectSize(element));
-          } else { //known file
-            long prevSize = (long) keedioSource.getFileList().get(dirToList + "/" + elementName);
-            position = prevSize;
-            long dif = keedioSource.getObjectSize(element) - (long) keedioSource.getFileList()
-              .get(dirToList + "/" + elementName);
-
-            if (dif > 0) {
-              LOGGER.info("Modified: " + elementName + " ,size: " + dif);
-            } else if (dif < 0) { //known and full modified
-              keedioSource.getExistFileList().remove(dirToList + "/" + elementName); //will be rediscovered as new file
-              keedioSource.saveMap();
-              continue;
-            } else {
-              continue;
-            }
+  /**
+   * discoverElementsParallel: find files to process them listing several
+   * directories at the same time over pooled connections.
+   *
+   * @param <T>
+   * @param root        directory where the search starts
+   * @param recursive   Whether to search sub-directories recursively
+   * @param discovered  where files with data not processed yet are added
+   * @throws IOException
+   */
+  private <T> void discoverElementsParallel(String root, final boolean recursive,
+                                            final List<DiscoveredFile<T>> discovered) throws IOException {
+    ParallelDiscovery<T> discovery = new ParallelDiscovery<>(connectionPool, discoveryExecutor,
+      keedioSource.getDiscoveryThreads(), keedioSource.getDiscoveryQueueSize());
+    discovery.discover(root, new ParallelDiscovery.DirectoryVisitor<T>() {
+      @Override
+      public List<String> visit(KeedioSource connection, String directory,
+                                BlockingQueue<DiscoveredFile<T>> candidates) throws IOException, InterruptedException {
+        return discoverDirectory(connection, directory, recursive, candidates);
+      }
+    }, new ParallelDiscovery.CandidateHandler<T>() {
+      @Override
+      public void handle(DiscoveredFile<T> file) {
+        discovered.add(file);
+      }
+    });
+  }
 
-          } //end if known file
+  /**
+   * discoverDirectory: list one directory for parallel discovery
+   *
+   * @param <T>
+   * @param connection  borrowed for the walk, one thread at a time
+   * @param dirToList   directory to list
+   * @param recursive   Whether to return sub-directories to walk
+   * @param candidates  where files with data not processed yet are put
+   * @return sub-directories to walk
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  private <T> List<String> discoverDirectory(KeedioSource connection, String dirToList, boolean recursive,
+                                             BlockingQueue<DiscoveredFile<T>> candidates)
+    throws IOException, InterruptedException {
+    List<String> subdirectories = new ArrayList<>();
+    long start = System.nanoTime();
+    List<T> list = connection.listElements(dirToList, keedioFileFilter);
+    sourceCounter.recordListLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    if (list.isEmpty()) {
+      return subdirectories;
+    }
 
-          //common for all regular files
-          InputStream inputStream = null;
-          try {
-            inputStream = keedioSource.getInputStream(element);
-            listener.fileStreamRetrieved();
+    for (T element : list) {
+      String elementName = connection.getObjectName(element);
+      if (elementName.equals(".") || elementName.equals("..")) {
+        continue;
+      }
 
-            if (!readStream(inputStream, position, elementName, dirToList)) {
-              inputStream = null;
-            }
+      if (connection.isDirectory(element)) {
+        if (recursive) {
+          LOGGER.info("Traversing element recursively: " + "[" + elementName + "]");
+          subdirectories.add(dirToList + "/" + elementName);
+        }
+      } else if (connection.isFile(element)) {
+        DiscoveredFile<T> file = inspectFile(connection, dirToList, elementName, element);
+        if (file != null) {
+          candidates.put(file);
+        }
+      } else if (connection.isLink(element)) {
+        LOGGER.info(elementName + " is a link of " + connection.getLink(element) + " could not retrieve size");
+      } else {
+        LOGGER.info(elementName + " unknown type of file");
+      }
+    }
+    return subdirectories;
+  }
 
-            boolean success = inputStream != null && keedioSource.particularCommand(); //mandatory if FTPClient
-            if (success) {
-              keedioSource.getFileList().put(dirToList + "/" + elementName, keedioSource.getObjectSize(element));
-              keedioSource.saveMap();
+  /**
+   * inspectFile: compare a regular file found in the server with the map of
+   * processed files, marking it as still existing. Settings and the map are
+   * always those of this source, the connection only parses the listing.
+   *
+   * @param <T>
+   * @param connection   the file was listed with
+   * @param dirToList    directory of the file
+   * @param elementName  name of the file
+   * @param element      file as listed
+   * @return DiscoveredFile with the position to transfer from, or null if
+   * there is nothing to transfer
+   */
+  private <T> DiscoveredFile<T> inspectFile(KeedioSource connection, String dirToList, String elementName,
+                                            T element) {
+    long position;
 
-              if (position != 0) {
-                sourceCounter.incrementCountModProc();
-              } else {
-                sourceCounter.incrementFilesProcCount();
-              }
+    // Check whether user has specified that file is not to be processed while in use
+    if(!keedioSource.isProcessInUse()) {
+      // If file is currently being written to, skip this file until it is finalized
+      if(isBeingWritten(connection.getModifiedTime(element), keedioSource.getProcessInUseTimeout())) {
+        LOGGER.info("File " + elementName + " is still being written. " +
+                "Will skip for now and re-read when write is completed.");
+        return null;
+      }
+    }
 
-              LOGGER
-                .info("Processed:  " + elementName + ", total files: " + this.keedioSource.getFileList().size() + "\n");
+    String path = dirToList + "/" + elementName;
+    TrackingStore trackingStore = keedioSource.getTrackingStore();
+    keedioSource.markSeen(path);  //control of deleted files in server
+    if (queuedPaths.contains(path)) { //already waiting for its transfer
+      return null;
+    }
+    long size = connection.getObjectSize(element);
+    long prevSize = trackingStore.get(path);
 
-              // If deleteOnCompletion is true, delete file
-              if(keedioSource.isDeleteOnCompletion()) {
-                LOGGER.info("Removing file " + elementName);
-                if(!this.keedioSource.rm(element)) { throw new IOException("Could not delete file: " +
-                        elementName); }
-                LOGGER.info("File " + elementName + " removed.");
-              }
+    //test if file is new in collection
+    if (prevSize < 0) { //new file
+      sourceCounter.incrementFilesCount(); //include all files, even not yet processed
+      position = 0L;
+      LOGGER.info("Discovered: " + elementName + " ,size: " + size);
+    } else { //known file
+      position = prevSize;
+      long dif = size - prevSize;
 
-            } else {
-              handleProcessError(elementName);
-            }
-          } catch (IOException e) {
-            handleProcessError(elementName);
-            LOGGER.error("Failed retrieving inputStream on discoverElements ", e);
-            continue;
-          }
+      if (dif > 0) {
+        LOGGER.info("Modified: " + elementName + " ,size: " + dif);
+      } else if (dif < 0) { //known and full modified
+        keedioSource.unmarkSeen(path); //will be rediscovered as new file
+        return null;
+      } else {
+        return null;
+      }
 
-          keedioSource.changeToDirectory(dirToList);
+    } //end if known file
 
-        } else if (keedioSource.isLink(element)) {
-          LOGGER.info(elementName + " is a link of " + this.keedioSource.getLink(element) + " could not retrieve size");
-          keedioSource.changeToDirectory(parentDir);
-          continue;
-        } else {
-          LOGGER.info(elementName + " unknown type of file");
-          keedioSource.changeToDirectory(parentDir);
-          continue;
+    return new DiscoveredFile<>(element, dirToList, elementName, position, size);
+  }
+
+  /**
+   * transferElements: process discovered files. With a single connection
+   * files are transferred one after another over the main connection, taking
+   * turns with discovery between files, otherwise each one is transferred by the executor over
+   * its own pooled connection. Map of processed files is updated from this
+   * thread as transfers complete, and by the transfers themselves at each
+   * checkpoint.
+   *
+   * @param <T>
+   * @param discovered files with data not processed yet
+   */
+  private <T> void transferElements(List<DiscoveredFile<T>> discovered) {
+    if (transferExecutor == null) {
+      for (DiscoveredFile<T> file : discovered) {
+        boolean success;
+        connectionLock.lock();
+        try {
+          success = transfer(keedioSource, file);
+        } finally {
+          connectionLock.unlock();
         }
-        keedioSource.changeToDirectory(parentDir);
+        completeTransfer(file, success);
+      }
+      return;
+    }
 
+    CompletionService<Boolean> completionService = new ExecutorCompletionService<>(transferExecutor);
+    Map<Future<Boolean>, DiscoveredFile<T>> pending = new HashMap<>();
+    for (final DiscoveredFile<T> file : discovered) {
+      pending.put(completionService.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return connectionPooled(file);
+        }
+      }), file);
+    }
+
+    try {
+      while (!pending.isEmpty()) {
+        Future<Boolean> future = completionService.take();
+        DiscoveredFile<T> file = pending.remove(future);
+        boolean success = false;
+        try {
+          success = future.get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Failed transferring " + file.getName(), e.getCause());
+        }
+        completeTransfer(file, success);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.error("Interrupted waiting for transfers, " + pending.size() + " will be retried in next poll", e);
+      for (Future<Boolean> future : pending.keySet()) {
+        future.cancel(true);
       }
+      Thread.currentThread().interrupt();
     }
   }
 
+  /**
+   * Transfer a discovered file over a connection borrowed from the pool.
+   *
+   * @param file
+   * @return boolean, true if the file was transferred
+   * @throws InterruptedException
+   */
+  private <T> boolean connectionPooled(DiscoveredFile<T> file) throws InterruptedException {
+    KeedioSource connection;
+    try {
+      connection = connectionPool.borrow();
+    } catch (IOException e) {
+      LOGGER.error("Could not get a connection to transfer " + file.getName(), e);
+      return false;
+    }
+
+    boolean success = transfer(connection, file);
+    if (success) {
+      connectionPool.release(connection);
+    } else {
+      connectionPool.invalidate(connection);
+    }
+    return success;
+  }
+
+  /**
+   * Retrieve a discovered file from its position, by its absolute path, and
+   * send its data to the channel. Deletes the file afterwards if
+   * deleteOnCompletion is set.
+   *
+   * @param connection used for the transfer, one thread at a time
+   * @param file
+   * @return boolean, true if the file was transferred
+   */
+  private <T> boolean transfer(KeedioSource connection, DiscoveredFile<T> file) {
+    CountingInputStream inputStream = null;
+    FirstByteInputStream firstByte = null;
+    long start = System.nanoTime();
+    try {
+      InputStream retrieved = connection.getInputStream(file.getPath(), file.getPosition());
+      if (retrieved != null) {
+        firstByte = new FirstByteInputStream(retrieved);
+        inputStream = new CountingInputStream(firstByte);
+      }
+      listener.fileStreamRetrieved();
+
+      boolean success = readStream(inputStream, file);
+      if (inputStream != null) {
+        file.setConsumed(inputStream.getCount());
+        if (firstByte.getFirstByteNanos() >= 0) {
+          sourceCounter.recordFirstByteLatency(TimeUnit.NANOSECONDS.toMicros(firstByte.getFirstByteNanos() - start));
+        }
+      }
+
+      if (inputStream != null) {
+        if (!success) {
+          closeQuietly(inputStream, file);
+        }
+        // the reply of a retrieval started is read even if the read failed, else it is taken for the reply of
+        // the next command; a retrieval refused has no reply left to read
+        boolean completed = connection.particularCommand(); //mandatory if FTPClient
+        success = success && completed;
+      }
+      if (success) {
+        sourceCounter.recordTransferLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      }
+
+      if (success && keedioSource.isDeleteOnCompletion()) {
+        deleteTransferred(connection, file);
+      }
+      return success;
+    } catch (IOException e) {
+      LOGGER.error("Failed retrieving inputStream on discoverElements ", e);
+      return false;
+    }
+  }
+
+  /**
+   * Close the stream of a transfer that failed, so the server ends the
+   * retrieval.
+   *
+   * @param inputStream of the transfer
+   * @param file transferred
+   */
+  private <T> void closeQuietly(InputStream inputStream, DiscoveredFile<T> file) {
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      LOGGER.warn("Could not close stream of " + file.getName() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Delete a file once transferred, unless it grew after the bytes read or
+   * its last record was held back. The transfer is delivered already, so a
+   * failure here only leaves the file in place.
+   *
+   * @param connection the file was transferred with
+   * @param file transferred
+   */
+  private <T> void deleteTransferred(KeedioSource connection, DiscoveredFile<T> file) {
+    if (file.isHeldBack()) {
+      LOGGER.info("File " + file.getName() + " has its last record held back, not removed");
+      return;
+    }
+    long size;
+    try {
+      size = connection.statSize(file.getPath());
+    } catch (IOException e) {
+      LOGGER.error("Could not check size of " + file.getName() + " before removing it, not removed", e);
+      return;
+    }
+    if (size > file.getPosition() + file.getConsumed()) {
+      LOGGER.warn("File " + file.getName() + " grew to " + size + " while transferring, not removed");
+    } else {
+      LOGGER.info("Removing file " + file.getName());
+      if (connection.rm(file.getPath())) {
+        LOGGER.info("File " + file.getName() + " removed.");
+      } else {
+        LOGGER.error("Could not delete file: " + file.getName());
+      }
+    }
+  }
+
+  /**
+   * Update map of processed files and counters with the result of a transfer.
+   *
+   * @param file
+   * @param success
+   */
+  private <T> void completeTransfer(DiscoveredFile<T> file, boolean success) {
+    if (!success) {
+      handleProcessError(file.getName());
+      // keep what the channel already took, for compressed files up to the members delivered
+      if (file.getCommitted() > 0 && !file.isCompressed()) {
+        keedioSource.trackFile(file.getPath(), file.getPosition() + file.getCommitted());
+        LOGGER.info("Recorded " + file.getCommitted() + " bytes of " + file.getName() + " delivered before failing");
+      } else if (file.getResumeOffset() > 0 || file.getMemberDelivered() > 0) {
+        keedioSource.trackFile(file.getPath(), file.getPosition() + file.getResumeOffset(), file.getMemberDelivered());
+        LOGGER.info("Recorded " + file.getResumeOffset() + " compressed bytes and " + file.getMemberDelivered()
+          + " bytes of the next member of " + file.getName() + " delivered before failing");
+      }
+      return;
+    }
+
+    if (file.isHeldBack()) {
+      // up to the last record delivered, the one held back is read again
+      if (file.isCompressed()) {
+        keedioSource.trackFile(file.getPath(), file.getPosition() + file.getResumeOffset(), file.getMemberDelivered());
+      } else {
+        keedioSource.trackFile(file.getPath(), file.getPosition() + file.getCommitted());
+      }
+    } else if (file.isCompressed()) {
+      keedioSource.trackFile(file.getPath(), file.getPosition() + file.getConsumed(), 0);
+    } else {
+      keedioSource.trackFile(file.getPath(), file.getPosition() + file.getConsumed());
+    }
+
+    if (file.getPosition() != 0) {
+      sourceCounter.incrementCountModProc();
+    } else {
+      sourceCounter.incrementFilesProcCount();
+    }
+
+    LOGGER.info("Processed:  " + file.getName() + ", total files: " + this.keedioSource.getTrackingStore().size() + "\n");
+  }
+
   /**
    * Determine whether source file is currently being written to
    * @param lastModifiedTime The last modified timestamp of the source file
@@ -308,86 +771,278 @@ public class Source extends AbstractSource implements Configurable, PollableSour
 
   /**
    * Read retrieved stream from ftpclient into byte[] and process. If
-   * flushlines is true the retrieved inputstream will be readed by lines. And
-   * the type of file is set to ASCII from KeedioSource.
+   * flushlines is true the retrieved inputstream will be readed by lines,
+   * split on bytes so the content is never decoded, after decompressing
+   * the stream if compressed selects a codec for the file, in auto by the
+   * first bytes of the file. A file resumed is decompressed only if a new
+   * stream of its codec starts at the position, as a gzip member does,
+   * otherwise the bytes added are skipped.
+   * The stream already starts at the first byte not processed yet. Bytes of
+   * the stream delivered to the channel are left in file as committed, also
+   * when the read fails, and recorded at every checkpoint meanwhile if the
+   * stream is not decompressed. Gzip is decoded member by member: the
+   * content of the member delivered in a previous poll is skipped, and the
+   * last member boundary delivered is recorded with the content delivered
+   * after it; BGZF blocks are inflated on the inflate threads meanwhile.
+   * With multiline patterns lines are joined into records first, and the
+   * last record of a file still being written is left for the next poll.
+   *
+   * Package visible for the benchmarks of the read path.
    *
    * @param inputStream
-   * @param position
+   * @param file being read
    * @return boolean
    */
-  private boolean readStream(InputStream inputStream, long position, String fileName, String filePath) {
+  <T> boolean readStream(InputStream inputStream, final DiscoveredFile<T> file) {
     if (inputStream == null) {
       return false;
     }
 
+    final String fileName = file.getName();
+    final String filePath = file.getDirectory();
     boolean successRead = true;
+    final EventBatcher batcher = newEventBatcher();
+    GzipMemberInputStream members = null;
+    long memberSkipped = 0;
 
     if (keedioSource.isFlushLines()) {
       try {
-        inputStream.skip(position);
-
-        if(keedioSource.getCompressionFormat() != null) {
-          switch(keedioSource.getCompressionFormat()) {
-            case "gzip":
-            LOGGER.info("File " + fileName + " is GZIP compressed, and decompression has been requested by user. " +
-                    "Will attempt to decompress.");
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
-                    Charset.defaultCharset()))) {
-              String line = null;
-
-              while ((line = in.readLine()) != null) {
-                processMessage(line.getBytes(), fileName, filePath);
-              }
+        String format = keedioSource.getCompressionFormat();
+        InputStream in = inputStream;
+        if (format != null) {
+          in = new BufferedInputStream(inputStream, LineSplitter.DEFAULT_BUFFER_SIZE);
+        }
+        Decompressor decompressor = selectDecompressor(format, file, in);
+        file.setCompressed(decompressor != null);
+        if (decompressor != null && file.getPosition() > 0
+          && !keedioSource.getDecompressors().startsStream(decompressor, in)) {
+          // only a new stream, as every gzip member, can be decompressed from the size processed
+          LOGGER.warn("File " + fileName + " grew in the middle of its " + decompressor.getName()
+            + " stream, which can not be resumed, skipping the bytes added");
+          ByteStreams.copy(in, new NullOutputStream());
+        } else if (decompressor != null) {
+          LOGGER.info("File " + fileName + " is " + decompressor.getName() + " compressed, and decompression has "
+            + "been requested by user. Will attempt to decompress.");
+          in = decompressor.open(in);
+          if (in instanceof GzipMemberInputStream) {
+            members = (GzipMemberInputStream) in;
+            if (inflateExecutor != null) {
+              members.setInflaters(inflateExecutor, keedioSource.getInflateThreads());
             }
-            break;
-            default: throw new IOException("Unsupported compression format specified: " +
-                    keedioSource.getCompressionFormat());
+            // skip the content of the first member delivered by a previous transfer
+            memberSkipped = keedioSource.getMemberDelivered(file.getPath());
+            ByteStreams.skipFully(in, memberSkipped);
           }
-        } else {
-          try (BufferedReader in = new BufferedReader(new InputStreamReader(inputStream, Charset.defaultCharset()))) {
-            String line = null;
+        }
 
-            while ((line = in.readLine()) != null) {
-              processMessage(line.getBytes(), fileName, filePath);
+        final GzipMemberInputStream trackedMembers = members;
+        final long trackedSkipped = memberSkipped;
+        final boolean resumable = members != null || decompressor == null;
+        final OffsetCheckpoint checkpoint = resumable ? newOffsetCheckpoint() : null;
+        final LineSplitter splitter = new LineSplitter();
+        final MultilineAggregator.RecordHandler records = new MultilineAggregator.RecordHandler() {
+          @Override
+          public void handle(byte[] buffer, int offset, int length, long endOffset) {
+            processMessage(batcher, Arrays.copyOfRange(buffer, offset, offset + length), endOffset, fileName,
+              filePath);
+            if (trackedMembers != null) {
+              checkpoint(file, batcher, checkpoint, trackedMembers, trackedSkipped);
+            } else {
+              checkpoint(file, batcher, checkpoint);
             }
-
+          }
+        };
+        MultilineAggregator multiline = null;
+        LineSplitter.LineHandler handler;
+        if (keedioSource.isMultiline()) {
+          multiline = new MultilineAggregator(splitter, keedioSource.getMultilineStart(),
+            keedioSource.getMultilineContinuation(), keedioSource.getMultilineMaxLines(),
+            keedioSource.getMultilineMaxBytes(), records);
+          handler = multiline;
+        } else {
+          handler = new LineSplitter.LineHandler() {
+            @Override
+            public void handle(byte[] buffer, int offset, int length) throws IOException {
+              records.handle(buffer, offset, length, splitter.getConsumed());
+            }
+          };
+        }
+        try (InputStream lines = in) {
+          splitter.split(lines, handler);
+        }
+        if (multiline != null && multiline.hasPending()) {
+          if (resumable && isRecentlyModified(file)) {
+            // more lines of the last record may still be written, read it again in the next poll
+            file.setHeldBack(true);
+            LOGGER.debug("Last record of " + fileName + " left for the next poll");
+          } else {
+            multiline.flush();
           }
         }
         inputStream.close();
+        batcher.flush();
       } catch (IOException e) {
         LOGGER.error(e.getMessage(), e);
         successRead = false;
+      } catch (ChannelException e) {
+        LOGGER.error("Could not deliver events of " + fileName, e);
+        successRead = false;
       }
     } else {
 
       try {
-        inputStream.skip(position);
-        int chunkSize = keedioSource.getChunkSize();
-        byte[] bytesArray = new byte[chunkSize];
-        int bytesRead = -1;
-        while ((bytesRead = inputStream.read(bytesArray)) != -1) {
-          try (ByteArrayOutputStream baostream = new ByteArrayOutputStream(chunkSize)) {
-            baostream.write(bytesArray, 0, bytesRead);
-            byte[] data = baostream.toByteArray();
-            processMessage(data, fileName, filePath);
-          }
+        OffsetCheckpoint checkpoint = newOffsetCheckpoint();
+        ChunkReader chunks = new ChunkReader(inputStream, keedioSource.getChunkSize());
+        byte[] data;
+        while ((data = chunks.next()) != null) {
+          processMessage(batcher, data, chunks.getConsumed(), fileName, filePath);
+          checkpoint(file, batcher, checkpoint);
         }
 
         inputStream.close();
+        batcher.flush();
       } catch (IOException e) {
         LOGGER.error("on readStream", e);
         successRead = false;
-
+      } catch (ChannelException e) {
+        LOGGER.error("Could not deliver events of " + fileName, e);
+        successRead = false;
+      }
+    }
+    if (!successRead) {
+      try {
+        batcher.flush();
+      } catch (ChannelException e) {
+        LOGGER.error("Could not deliver events of " + fileName, e);
       }
     }
+    file.setCommitted(batcher.getCommittedOffset());
+    if (members != null) {
+      long delivered = memberSkipped + batcher.getCommittedOffset();
+      members.commit(delivered);
+      file.setMemberProgress(members.getResumeOffset(), delivered - members.getResumeOutput());
+    }
     return successRead;
   }
 
   /**
+   * Decompressor of a file for the compressed setting. In auto the codec is
+   * detected from the first bytes of the file, so only when it is read from
+   * its start, and kept for the file is resumed at the size processed. A
+   * file resumed whose codec was not detected by this source, as after a
+   * restart, is detected from the bytes added, found compressed only if a
+   * new stream starts there.
+   *
+   * @param format value of compressed
+   * @param file being read
+   * @param in stream of file from its position, must support mark if format
+   * is not null
+   * @return decompressor of the file, null if it is read as is
+   * @throws IOException if format is not a known codec, or in could not be
+   * read
+   */
+  private <T> Decompressor selectDecompressor(String format, DiscoveredFile<T> file, InputStream in)
+    throws IOException {
+    DecompressorRegistry decompressors = keedioSource.getDecompressors();
+    if (!DecompressorRegistry.AUTO.equals(format)) {
+      return decompressors.select(format, file.getName());
+    }
+    Decompressor decompressor = file.getPosition() == 0 ? null : detectedCodecs.get(file.getPath());
+    if (decompressor == null) {
+      decompressor = decompressors.detect(in);
+    }
+    if (decompressor != null) {
+      detectedCodecs.put(file.getPath(), decompressor);
+    } else {
+      detectedCodecs.remove(file.getPath());
+    }
+    return decompressor;
+  }
+
+  /**
+   * Drop the codecs detected of files not in the map of processed files
+   * anymore.
+   */
+  private void forgetDetectedCodecs() {
+    TrackingStore trackingStore = keedioSource.getTrackingStore();
+    for (Iterator<String> paths = detectedCodecs.keySet().iterator(); paths.hasNext();) {
+      if (trackingStore.get(paths.next()) < 0) {
+        paths.remove();
+      }
+    }
+  }
+
+  /**
+   * @param file being read
+   * @return true if file was modified within multiline.flush.timeout.ms
+   */
+  private <T> boolean isRecentlyModified(DiscoveredFile<T> file) {
+    long timeout = keedioSource.getMultilineFlushTimeoutMs();
+    return timeout > 0 && System.currentTimeMillis() - keedioSource.getModifiedTime(file.getElement()) < timeout;
+  }
+
+  /**
+   * @return OffsetCheckpoint configured from the context of the source, or
+   * null if checkpoints are disabled
+   */
+  private OffsetCheckpoint newOffsetCheckpoint() {
+    if (keedioSource.getCheckpointBytes() <= 0 && keedioSource.getCheckpointIntervalMs() <= 0) {
+      return null;
+    }
+    return new OffsetCheckpoint(keedioSource.getCheckpointBytes(), keedioSource.getCheckpointIntervalMs());
+  }
+
+  /**
+   * Record the offset of file delivered so far, if a checkpoint is due.
+   *
+   * @param file being read
+   * @param batcher delivering its events
+   * @param checkpoint of file, may be null
+   */
+  private <T> void checkpoint(DiscoveredFile<T> file, EventBatcher batcher, OffsetCheckpoint checkpoint) {
+    if (checkpoint != null && checkpoint.isDue(batcher.getCommittedOffset())) {
+      keedioSource.trackFile(file.getPath(), file.getPosition() + batcher.getCommittedOffset());
+      LOGGER.debug("Checkpoint of " + file.getName() + " at " + (file.getPosition() + batcher.getCommittedOffset()));
+    }
+  }
+  /**
+   * Move the point to resume a gzip file from to the members delivered so
+   * far, and record it if a checkpoint is due.
+   *
+   * @param file being read
+   * @param batcher delivering its events
+   * @param checkpoint of file, may be null
+   * @param members of the content of file
+   * @param skipped bytes of content delivered by previous transfers
+   */
+  private <T> void checkpoint(DiscoveredFile<T> file, EventBatcher batcher, OffsetCheckpoint checkpoint,
+                              GzipMemberInputStream members, long skipped) {
+    long delivered = skipped + batcher.getCommittedOffset();
+    members.commit(delivered);
+    if (checkpoint != null && checkpoint.isDue(batcher.getCommittedOffset())) {
+      keedioSource.trackFile(file.getPath(), file.getPosition() + members.getResumeOffset(),
+        delivered - members.getResumeOutput());
+      LOGGER.debug("Checkpoint of " + file.getName() + " at member " + (file.getPosition() + members.getResumeOffset()));
+    }
+  }
+
+
+  /**
+   * @return EventBatcher configured from the context of the source
+   */
+  private EventBatcher newEventBatcher() {
+    return new EventBatcher(getChannelProcessor(), keedioSource.getBatchSize(),
+      keedioSource.getBatchMaxBytes(), keedioSource.getBatchLingerMs(), keedioSource.getDeliveryBackoffMs(),
+      keedioSource.getDeliveryMaxBackoffMs(), sourceCounter);
+  }
+
+  /**
+   * @param batcher where the event is accumulated until its batch is delivered
    * @param lastInfo byte[]
    * @void process last appended data to files
    */
-  private void processMessage(byte[] lastInfo, String fileName, String filePath) {
+  private void processMessage(EventBatcher batcher, byte[] lastInfo, long endOffset, String fileName,
+    String filePath) {
     byte[] message = lastInfo;
     Event event = new SimpleEvent();
     Map<String, String> headers = new HashMap<>();
@@ -396,11 +1051,7 @@ public class Source extends AbstractSource implements Configurable, PollableSour
       headers.put("timestamp", String.valueOf(System.currentTimeMillis()));
       event.setBody(message);
       event.setHeaders(headers);
-      try {
-        getChannelProcessor().processEvent(event);
-      } catch (ChannelException e) {
-        LOGGER.error("ChannelException", e);
-      }
+      batcher.add(event, endOffset);
       sourceCounter.incrementCountSizeProc(message.length);
       sourceCounter.incrementEventCount();
     }
@@ -435,13 +1086,23 @@ public class Source extends AbstractSource implements Configurable, PollableSour
     return keedioSource;
   }
 
+  /**
+   * Use a KeedioSource already configured instead of configuring one from a
+   * context, for the benchmarks of the read path. It is not connected.
+   *
+   * @param keedioSource
+   */
+  void setKeedioSource(KeedioSource keedioSource) {
+    this.keedioSource = keedioSource;
+  }
+
   @Override
   public long getBackOffSleepIncrement() {
-    return 0;
+    return keedioSource.getBackoffSleepIncrement();
   }
 
   @Override
   public long getMaxBackOffSleepInterval() {
-    return 0;
+    return keedioSource.getMaxBackoffSleep();
   }
 } //endclass
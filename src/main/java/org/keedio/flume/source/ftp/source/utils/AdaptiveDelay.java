@@ -0,0 +1,45 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+/**
+ * Delay between discovery passes that follows the arrival of files: it
+ * drops to min as soon as a pass finds new or grown files, and doubles after
+ * every pass that finds none, up to max. Busy directories are polled often
+ * and idle ones less and less.
+ */
+public class AdaptiveDelay {
+
+    private final long min;
+    private final long max;
+    private long delay;
+
+    /**
+     *
+     * @param initial delay before the first pass finds anything
+     * @param min delay while files keep arriving
+     * @param max delay while directories are idle
+     */
+    public AdaptiveDelay(long initial, long min, long max) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.delay = Math.min(Math.max(initial, this.min), this.max);
+    }
+
+    /**
+     * @param found true if the last pass found files to process
+     * @return delay until the next pass
+     */
+    public long next(boolean found) {
+        delay = found ? min : Math.min(delay * 2, max);
+        return delay;
+    }
+
+    /**
+     * @return current delay
+     */
+    public long get() {
+        return delay;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a stream in chunks of a fixed size, each one in its own array ready
+ * to be used as the body of an event. Short reads of network streams are
+ * retried until the chunk is full, so only the last chunk of a stream may be
+ * smaller; it is the only one copied, to be trimmed.
+ */
+public class ChunkReader {
+
+    private final InputStream in;
+    private final int chunkSize;
+    private long consumed;
+
+    /**
+     *
+     * @param in stream to read
+     * @param chunkSize size of every chunk but the last one
+     */
+    public ChunkReader(InputStream in, int chunkSize) {
+        this.in = in;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @return next chunk, or null at the end of the stream
+     * @throws IOException
+     */
+    public byte[] next() throws IOException {
+        byte[] chunk = new byte[chunkSize];
+        int filled = 0;
+        while (filled < chunkSize) {
+            int read = in.read(chunk, filled, chunkSize - filled);
+            if (read == -1) {
+                break;
+            }
+            filled += read;
+        }
+        if (filled == 0) {
+            return null;
+        }
+        consumed += filled;
+        return filled == chunkSize ? chunk : Arrays.copyOf(chunk, filled);
+    }
+
+    /**
+     * @return bytes of the stream returned in chunks so far
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+}
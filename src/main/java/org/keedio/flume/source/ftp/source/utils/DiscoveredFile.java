@@ -0,0 +1,165 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+/**
+ * Regular file found while discovering the remote tree that has data not
+ * processed yet, waiting to be transferred.
+ *
+ * @param <T> type of the element listed by the KeedioSource
+ */
+public class DiscoveredFile<T> {
+
+    private final T element;
+    private final String directory;
+    private final String name;
+    private final long position;
+    private final long size;
+    private volatile long committed;
+    private volatile long consumed;
+    private volatile boolean compressed;
+    private volatile long resumeOffset;
+    private volatile long memberDelivered;
+    private volatile boolean heldBack;
+
+    /**
+     *
+     * @param element as listed by the server
+     * @param directory where the file was listed
+     * @param name of the file
+     * @param position offset of the first byte not processed yet
+     * @param size of the file when it was discovered
+     */
+    public DiscoveredFile(T element, String directory, String name, long position, long size) {
+        this.element = element;
+        this.directory = directory;
+        this.name = name;
+        this.position = position;
+        this.size = size;
+    }
+
+    /**
+     * @return the element
+     */
+    public T getElement() {
+        return element;
+    }
+
+    /**
+     * @return the directory
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return directory and name, the key of the file in the map of processed files
+     */
+    public String getPath() {
+        return directory + "/" + name;
+    }
+
+    /**
+     * @return the position
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return bytes from position delivered to the channel by the transfer
+     */
+    public long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * @param committed bytes from position delivered to the channel
+     */
+    public void setCommitted(long committed) {
+        this.committed = committed;
+    }
+
+    /**
+     * @return bytes from position read from the server by the transfer
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @param consumed bytes from position read from the server
+     */
+    public void setConsumed(long consumed) {
+        this.consumed = consumed;
+    }
+
+    /**
+     * @return true if the transfer decompressed the file, so offsets of the
+     * events are not offsets of the file
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * @param compressed whether the transfer decompresses the file
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return bytes from position up to the end of the last member of a
+     * compressed file whose content was delivered
+     */
+    public long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    /**
+     * @return bytes of content of the member at resumeOffset delivered
+     */
+    public long getMemberDelivered() {
+        return memberDelivered;
+    }
+
+    /**
+     * @param resumeOffset bytes from position up to the end of the last
+     * member delivered
+     * @param memberDelivered bytes of content of the next member delivered
+     */
+    public void setMemberProgress(long resumeOffset, long memberDelivered) {
+        this.resumeOffset = resumeOffset;
+        this.memberDelivered = memberDelivered;
+    }
+
+    /**
+     * @return true if the last record read was left for the next transfer
+     */
+    public boolean isHeldBack() {
+        return heldBack;
+    }
+
+    /**
+     * @param heldBack the heldBack to set
+     */
+    public void setHeldBack(boolean heldBack) {
+        this.heldBack = heldBack;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.ChannelException;
+import org.apache.flume.Event;
+import org.apache.flume.channel.ChannelProcessor;
+import org.keedio.flume.source.ftp.metrics.SourceCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates events read from a remote file and hands them to the channel
+ * with a single processEventBatch call, so one channel transaction covers
+ * many lines or chunks instead of one.
+ *
+ * A batch is flushed when it reaches batchSize events, when its bodies add up
+ * to maxBytes (if greater than 0) or when the first buffered event is older
+ * than lingerMs (if greater than 0). Callers must flush at the end of every
+ * file.
+ *
+ * A batch the channel does not take, usually because it is full, is retried
+ * with a backoff doubling from backoffMs up to maxBackoffMs, blocking the
+ * caller so reading from the server pauses meanwhile. Nothing is dropped: if
+ * the thread is interrupted while retrying, the batch is discarded and a
+ * ChannelException thrown, and getCommittedOffset tells how far the stream
+ * was delivered.
+ */
+public class EventBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventBatcher.class);
+    private static final long BACKOFF_MS_DEFAULT = 100;
+    private static final long MAX_BACKOFF_MS_DEFAULT = 5000;
+
+    private final ChannelProcessor channelProcessor;
+    private final int batchSize;
+    private final long maxBytes;
+    private final long lingerMs;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final SourceCounter counter;
+    private final List<Event> events;
+    private long bytes;
+    private long firstEventTime;
+    private long pendingOffset;
+    private long committedOffset;
+
+    /**
+     *
+     * @param channelProcessor where batches are delivered
+     * @param batchSize max number of events per batch
+     * @param maxBytes max sum of body sizes per batch, 0 for no limit
+     * @param lingerMs max time an event waits in the batch, 0 for no limit
+     */
+    public EventBatcher(ChannelProcessor channelProcessor, int batchSize, long maxBytes, long lingerMs) {
+        this(channelProcessor, batchSize, maxBytes, lingerMs, BACKOFF_MS_DEFAULT, MAX_BACKOFF_MS_DEFAULT);
+    }
+
+    /**
+     *
+     * @param channelProcessor where batches are delivered
+     * @param batchSize max number of events per batch
+     * @param maxBytes max sum of body sizes per batch, 0 for no limit
+     * @param lingerMs max time an event waits in the batch, 0 for no limit
+     * @param backoffMs wait before retrying a batch the first time
+     * @param maxBackoffMs max wait between retries of a batch
+     */
+    public EventBatcher(ChannelProcessor channelProcessor, int batchSize, long maxBytes, long lingerMs,
+            long backoffMs, long maxBackoffMs) {
+        this(channelProcessor, batchSize, maxBytes, lingerMs, backoffMs, maxBackoffMs, null);
+    }
+
+    /**
+     *
+     * @param channelProcessor where batches are delivered
+     * @param batchSize max number of events per batch
+     * @param maxBytes max sum of body sizes per batch, 0 for no limit
+     * @param lingerMs max time an event waits in the batch, 0 for no limit
+     * @param backoffMs wait before retrying a batch the first time
+     * @param maxBackoffMs max wait between retries of a batch
+     * @param counter where the time taken delivering each batch, retries
+     *                included, is recorded; may be null
+     */
+    public EventBatcher(ChannelProcessor channelProcessor, int batchSize, long maxBytes, long lingerMs,
+            long backoffMs, long maxBackoffMs, SourceCounter counter) {
+        this.counter = counter;
+        this.channelProcessor = channelProcessor;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBytes = maxBytes;
+        this.lingerMs = lingerMs;
+        this.backoffMs = Math.max(1, backoffMs);
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+        this.events = new ArrayList<>(this.batchSize);
+    }
+
+    /**
+     * Add an event to the current batch, flushing it if any limit is reached.
+     *
+     * @param event
+     */
+    public void add(Event event) {
+        add(event, pendingOffset);
+    }
+
+    /**
+     * Add an event to the current batch, flushing it if any limit is reached.
+     *
+     * @param event
+     * @param endOffset offset in the stream right after the data of event
+     */
+    public void add(Event event, long endOffset) {
+        if (events.isEmpty() && lingerMs > 0) {
+            firstEventTime = System.currentTimeMillis();
+        }
+        events.add(event);
+        bytes += event.getBody().length;
+        pendingOffset = endOffset;
+
+        if (events.size() >= batchSize
+                || (maxBytes > 0 && bytes >= maxBytes)
+                || (lingerMs > 0 && System.currentTimeMillis() - firstEventTime >= lingerMs)) {
+            flush();
+        }
+    }
+
+    /**
+     * Deliver buffered events, if any, in one channel transaction, retrying
+     * until the channel takes them.
+     *
+     * @throws ChannelException if interrupted before the batch was delivered
+     */
+    public void flush() {
+        if (events.isEmpty()) {
+            return;
+        }
+        long backoff = backoffMs;
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                try {
+                    channelProcessor.processEventBatch(events);
+                    committedOffset = pendingOffset;
+                    if (counter != null) {
+                        counter.recordCommitLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    }
+                    return;
+                } catch (ChannelException e) {
+                    LOGGER.warn("Channel did not take a batch of " + events.size() + " events, retrying in "
+                            + backoff + " ms: " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ChannelException("Interrupted delivering a batch of " + events.size()
+                            + " events", e);
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        } finally {
+            events.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * @return offset in the stream right after the last event delivered
+     */
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    /**
+     * @return number of events waiting to be flushed
+     */
+    public int size() {
+        return events.size();
+    }
+}
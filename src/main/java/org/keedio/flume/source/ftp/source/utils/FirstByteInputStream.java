@@ -0,0 +1,56 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Remembers when the first byte of a stream arrived, to measure the time
+ * taken by a server to start sending a file.
+ */
+public class FirstByteInputStream extends FilterInputStream {
+
+    private long firstByteNanos = -1;
+
+    /**
+     *
+     * @param in stream to watch
+     */
+    public FirstByteInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            arrived();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            arrived();
+        }
+        return read;
+    }
+
+    private void arrived() {
+        if (firstByteNanos < 0) {
+            firstByteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return System.nanoTime when the first byte was read, -1 if none was
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a stream in lines working on bytes, without decoding them into
+ * Strings. Lines end at \n, \r or \r\n, as with BufferedReader.readLine, and
+ * the last line is emitted even if it has no terminator. Terminators are not
+ * part of the lines.
+ *
+ * The stream is read into a buffer reused for every line; it only grows if a
+ * single line does not fit. Handlers get a slice of the buffer, valid until
+ * they return.
+ */
+public class LineSplitter {
+
+    /**
+     * Initial size of the buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives every line.
+     */
+    public interface LineHandler {
+
+        /**
+         * @param buffer holding the line
+         * @param offset of the first byte of the line
+         * @param length of the line, without terminator
+         * @throws IOException
+         */
+        void handle(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private byte[] buffer;
+    private long consumed;
+
+    /**
+     *
+     */
+    public LineSplitter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     *
+     * @param bufferSize initial size of the buffer
+     */
+    public LineSplitter(int bufferSize) {
+        this.buffer = new byte[Math.max(1, bufferSize)];
+    }
+
+    /**
+     * Read in until its end, handing every line to handler.
+     *
+     * @param in stream to split
+     * @param handler of lines
+     * @return number of lines
+     * @throws IOException
+     */
+    public long split(InputStream in, LineHandler handler) throws IOException {
+        long lines = 0;
+        int start = 0;
+        int end = 0;
+        boolean skipLF = false;
+
+        while (true) {
+            if (end == buffer.length) {
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else {
+                    byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, end);
+                    buffer = grown;
+                }
+            }
+
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                break;
+            }
+            int scan = end;
+            end += read;
+
+            if (skipLF && scan < end) {
+                skipLF = false;
+                if (buffer[scan] == '\n') {
+                    scan++;
+                    start = scan;
+                    consumed++;
+                }
+            }
+
+            for (int i = scan; i < end; i++) {
+                byte b = buffer[i];
+                if (b != '\n' && b != '\r') {
+                    continue;
+                }
+                int next = i + 1;
+                if (b == '\r') {
+                    if (next < end) {
+                        if (buffer[next] == '\n') {
+                            next++;
+                        }
+                    } else {
+                        skipLF = true;
+                    }
+                }
+                consumed += next - start;
+                handler.handle(buffer, start, i - start);
+                lines++;
+                start = next;
+                i = next - 1;
+            }
+
+            if (start == end) {
+                start = 0;
+                end = 0;
+            }
+        }
+
+        if (end > start) {
+            consumed += end - start;
+            handler.handle(buffer, start, end - start);
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * @return bytes of the stream covered by the lines handled so far,
+     * terminators included; inside a handler, the offset right after the
+     * line being handled
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+}
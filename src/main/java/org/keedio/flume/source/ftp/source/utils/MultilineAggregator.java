@@ -0,0 +1,134 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Joins the lines handed by a LineSplitter into records spanning several
+ * lines, such as stack traces or wrapped messages. A line matching the start
+ * pattern begins a record; any other line is appended to the record open,
+ * or only if it matches the continuation pattern when there is one, else it
+ * begins a record of its own.
+ *
+ * A record is handed on when the next one begins, when appending a line
+ * would exceed its maximum lines or bytes, or on flush, with its lines
+ * joined by \n. Only the record open is kept, never the whole stream, so the
+ * offset of every record handed on is right after its last line and lines of
+ * the record open are not covered by it.
+ */
+public class MultilineAggregator implements LineSplitter.LineHandler {
+
+    private static final byte[] SEPARATOR = {'\n'};
+
+    /**
+     * Receives every record.
+     */
+    public interface RecordHandler {
+
+        /**
+         * @param buffer holding the record
+         * @param offset of the first byte of the record
+         * @param length of the record
+         * @param endOffset bytes of the stream up to the end of the record,
+         * terminator of its last line included
+         * @throws IOException
+         */
+        void handle(byte[] buffer, int offset, int length, long endOffset) throws IOException;
+    }
+
+    private final LineSplitter splitter;
+    private final Pattern start;
+    private final Pattern continuation;
+    private final int maxLines;
+    private final int maxBytes;
+    private final RecordHandler handler;
+    private byte[] record = new byte[256];
+    private int length;
+    private int lines;
+    private long endOffset;
+
+    /**
+     *
+     * @param splitter handing the lines, for their offsets
+     * @param start pattern found in the first line of a record, may be null
+     * @param continuation pattern found in the other lines, may be null
+     * @param maxLines of a record, 0 for no limit
+     * @param maxBytes of a record, 0 for no limit; a longer line is still a
+     * record of its own
+     * @param handler of records
+     */
+    public MultilineAggregator(LineSplitter splitter, Pattern start, Pattern continuation, int maxLines,
+                               int maxBytes, RecordHandler handler) {
+        if (start == null && continuation == null) {
+            throw new IllegalArgumentException("Either a start or a continuation pattern is required");
+        }
+        this.splitter = splitter;
+        this.start = start;
+        this.continuation = continuation;
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(byte[] buffer, int offset, int length) throws IOException {
+        if (lines > 0 && (!fits(length) || !continues(buffer, offset, length))) {
+            flush();
+        }
+        if (lines > 0) {
+            append(SEPARATOR, 0, 1);
+        }
+        append(buffer, offset, length);
+        lines++;
+        endOffset = splitter.getConsumed();
+    }
+
+    /**
+     * Hand on the record open, if any.
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (lines == 0) {
+            return;
+        }
+        int recordLength = length;
+        long recordEnd = endOffset;
+        lines = 0;
+        length = 0;
+        handler.handle(record, 0, recordLength, recordEnd);
+    }
+
+    /**
+     * @return true if a record is open, its lines not handed on yet
+     */
+    public boolean hasPending() {
+        return lines > 0;
+    }
+
+    private boolean fits(int lineLength) {
+        return (maxLines <= 0 || lines < maxLines) && (maxBytes <= 0 || length + 1 + lineLength <= maxBytes);
+    }
+
+    private boolean continues(byte[] buffer, int offset, int length) {
+        String line = new String(buffer, offset, length, StandardCharsets.UTF_8);
+        if (start != null && start.matcher(line).find()) {
+            return false;
+        }
+        return continuation == null || continuation.matcher(line).find();
+    }
+
+    private void append(byte[] buffer, int offset, int count) {
+        if (length + count > record.length) {
+            byte[] grown = new byte[Math.max(record.length * 2, length + count)];
+            System.arraycopy(record, 0, grown, 0, length);
+            record = grown;
+        }
+        System.arraycopy(buffer, offset, record, length, count);
+        length += count;
+    }
+}
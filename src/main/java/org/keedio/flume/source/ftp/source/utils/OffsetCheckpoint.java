@@ -0,0 +1,48 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+/**
+ * Decides when the offset delivered of a file being transferred is worth
+ * recording: once it advanced intervalBytes since the last checkpoint, or
+ * intervalMs passed since then, whichever comes first. A limit of 0 is
+ * disabled. Only offsets that advanced are ever due, so the same offset is
+ * not recorded twice.
+ */
+public class OffsetCheckpoint {
+
+    private final long intervalBytes;
+    private final long intervalMs;
+    private long lastOffset;
+    private long lastTime;
+
+    /**
+     *
+     * @param intervalBytes bytes between checkpoints, 0 for no limit
+     * @param intervalMs time between checkpoints, 0 for no limit
+     */
+    public OffsetCheckpoint(long intervalBytes, long intervalMs) {
+        this.intervalBytes = intervalBytes;
+        this.intervalMs = intervalMs;
+        this.lastTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @param offset delivered so far
+     * @return true if offset must be recorded now; it becomes the last checkpoint
+     */
+    public boolean isDue(long offset) {
+        if (offset <= lastOffset) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if ((intervalBytes > 0 && offset - lastOffset >= intervalBytes)
+                || (intervalMs > 0 && now - lastTime >= intervalMs)) {
+            lastOffset = offset;
+            lastTime = now;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.KeedioSourcePool;
+
+/**
+ * Walks a remote tree listing several directories at the same time, each
+ * worker over its own pooled connection. Directories found are queued for
+ * any worker to list; when the queue is full the worker lists them itself,
+ * depth first, so memory stays bounded on very wide trees.
+ *
+ * Files found are handed to the calling thread as they are discovered,
+ * through a queue of the same capacity, so discovery waits for the consumer
+ * instead of piling candidates up.
+ *
+ * @param <T> type of the elements listed
+ */
+public class ParallelDiscovery<T> {
+
+    private static final long POLL_MS = 100;
+
+    /**
+     * Lists one directory.
+     *
+     * @param <T>
+     */
+    public interface DirectoryVisitor<T> {
+
+        /**
+         * @param connection borrowed by the worker, used by one thread at a time
+         * @param directory to list
+         * @param candidates where files with data not processed yet are put
+         * @return subdirectories to walk
+         * @throws IOException
+         * @throws InterruptedException
+         */
+        List<String> visit(KeedioSource connection, String directory, BlockingQueue<DiscoveredFile<T>> candidates)
+                throws IOException, InterruptedException;
+    }
+
+    /**
+     * Receives files discovered, on the thread calling discover.
+     *
+     * @param <T>
+     */
+    public interface CandidateHandler<T> {
+
+        /**
+         * @param file with data not processed yet
+         */
+        void handle(DiscoveredFile<T> file);
+    }
+
+    private final KeedioSourcePool pool;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    /**
+     *
+     * @param pool of connections, at least parallelism of them
+     * @param executor running the workers
+     * @param parallelism number of directories listed at the same time
+     * @param queueCapacity max directories waiting to be listed, and max files
+     *                      waiting to be handled
+     */
+    public ParallelDiscovery(KeedioSourcePool pool, ExecutorService executor, int parallelism, int queueCapacity) {
+        this.pool = pool;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Walk the tree under root until every directory is listed or one fails.
+     *
+     * @param root first directory to list
+     * @param visitor listing each directory
+     * @param handler of files discovered
+     * @throws IOException if listing a directory failed, or the walk was interrupted
+     */
+    public void discover(String root, final DirectoryVisitor<T> visitor, CandidateHandler<T> handler)
+            throws IOException {
+        final BlockingQueue<String> directories = new LinkedBlockingQueue<>(queueCapacity);
+        final BlockingQueue<DiscoveredFile<T>> candidates = new LinkedBlockingQueue<>(queueCapacity);
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        directories.add(root);
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    work(visitor, directories, candidates, pending, failure);
+                }
+            }));
+        }
+
+        try {
+            while (true) {
+                DiscoveredFile<T> file = candidates.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (file != null) {
+                    handler.handle(file);
+                } else if (isDone(workers)) {
+                    List<DiscoveredFile<T>> remaining = new ArrayList<>();
+                    candidates.drainTo(remaining);
+                    for (DiscoveredFile<T> last : remaining) {
+                        handler.handle(last);
+                    }
+                    break;
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted discovering files under " + root, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed discovering files under " + root, e.getCause());
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause != null) {
+            throw new IOException("Failed discovering files under " + root, cause);
+        }
+    }
+
+    /**
+     * Take directories from the queue until none is pending or a worker failed.
+     * Whatever a worker throws, errors included, is recorded as the failure so
+     * the others stop and the caller gets it.
+     */
+    private void work(DirectoryVisitor<T> visitor, BlockingQueue<String> directories,
+            BlockingQueue<DiscoveredFile<T>> candidates, AtomicInteger pending, AtomicReference<Throwable> failure) {
+        KeedioSource connection = null;
+        try {
+            while (failure.get() == null) {
+                String directory = directories.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (directory == null) {
+                    if (pending.get() == 0) {
+                        break;
+                    }
+                    continue;
+                }
+                boolean walked = false;
+                try {
+                    if (connection == null) {
+                        connection = pool.borrow();
+                    }
+                    walked = true;
+                    walk(connection, directory, visitor, directories, candidates, pending);
+                } finally {
+                    if (!walked) {
+                        // taken but never walked, walk counts down the others
+                        pending.decrementAndGet();
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            if (connection != null) {
+                pool.invalidate(connection);
+                connection = null;
+            }
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * List directory and queue its subdirectories, listing them here if the
+     * queue is full.
+     */
+    private void walk(KeedioSource connection, String directory, DirectoryVisitor<T> visitor,
+            BlockingQueue<String> directories, BlockingQueue<DiscoveredFile<T>> candidates, AtomicInteger pending)
+            throws IOException, InterruptedException {
+        try {
+            for (String subdirectory : visitor.visit(connection, directory, candidates)) {
+                pending.incrementAndGet();
+                if (!directories.offer(subdirectory)) {
+                    walk(connection, subdirectory, visitor, directories, candidates, pending);
+                }
+            }
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private static boolean isDone(List<Future<?>> workers) {
+        for (Future<?> worker : workers) {
+            if (!worker.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
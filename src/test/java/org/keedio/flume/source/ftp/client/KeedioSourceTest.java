@@ -5,11 +5,13 @@
  */
 package org.keedio.flume.source.ftp.client;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.FileInputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -195,6 +197,106 @@ public class KeedioSourceTest extends TestCase {
 
     }
 
+    /**
+     * Files tracked while the map is saved again and again are all found
+     * after a restart without closing it, none falling between the copy
+     * saved and the journal generation it replaces.
+     */
+    public void testTrackFileDuringSaveMap() throws Exception {
+        final int files = 2000;
+        Path folder = Files.createTempDirectory("tracking");
+        try {
+            final KeedioSource instance = new KeedioSourceImpl();
+            instance.setFileName("status.ser");
+            instance.setFolder(folder.toString());
+            instance.makeLocationFile();
+            instance.checkPreviousMap();
+
+            Thread tracker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < files; i++) {
+                        instance.trackFile("/dir/file" + i + ".log", i + 1);
+                    }
+                }
+            });
+            tracker.start();
+            while (tracker.isAlive()) {
+                instance.saveMap();
+            }
+            tracker.join();
+            instance.syncMap();
+
+            KeedioSource restarted = new KeedioSourceImpl();
+            restarted.setFileName("status.ser");
+            restarted.setFolder(folder.toString());
+            restarted.makeLocationFile();
+            restarted.checkPreviousMap();
+            assertEquals(files, restarted.getTrackingStore().size());
+            for (int i = 0; i < files; i++) {
+                assertEquals(i + 1, restarted.getTrackingStore().get("/dir/file" + i + ".log"));
+            }
+            instance.closeMap();
+            restarted.closeMap();
+        } finally {
+            File[] written = folder.toFile().listFiles();
+            if (written != null) {
+                for (File file : written) {
+                    file.delete();
+                }
+            }
+            Files.deleteIfExists(folder);
+        }
+    }
+
+    /**
+     * Content delivered of members of compressed files is kept apart from the
+     * map, not counted as files nor mixed with files named alike, and found
+     * again after a restart.
+     */
+    public void testTrackMember() throws Exception {
+        Path folder = Files.createTempDirectory("tracking");
+        try {
+            KeedioSource instance = createCompressedSource(folder);
+            instance.trackFile("/dir/file.gz", 100, 50);
+            instance.trackFile("/dir/file.gz#member", 7);
+            assertEquals(2, instance.getTrackingStore().size());
+            assertEquals(50, instance.getMemberDelivered("/dir/file.gz"));
+            assertEquals(0, instance.getMemberDelivered("/dir/file.gz#member"));
+            instance.syncMap();
+
+            KeedioSource restarted = createCompressedSource(folder);
+            assertEquals(2, restarted.getTrackingStore().size());
+            assertEquals(100, restarted.getTrackingStore().get("/dir/file.gz"));
+            assertEquals(7, restarted.getTrackingStore().get("/dir/file.gz#member"));
+            assertEquals(50, restarted.getMemberDelivered("/dir/file.gz"));
+
+            restarted.trackFile("/dir/file.gz", 180, 0);
+            assertEquals(0, restarted.getMemberDelivered("/dir/file.gz"));
+            instance.closeMap();
+            restarted.closeMap();
+            assertEquals(0, createCompressedSource(folder).getMemberDelivered("/dir/file.gz"));
+        } finally {
+            File[] written = folder.toFile().listFiles();
+            if (written != null) {
+                for (File file : written) {
+                    file.delete();
+                }
+            }
+            Files.deleteIfExists(folder);
+        }
+    }
+
+    private KeedioSource createCompressedSource(Path folder) {
+        KeedioSource instance = new KeedioSourceImpl();
+        instance.setFileName("status.ser");
+        instance.setFolder(folder.toString());
+        instance.setFileCompressed("gzip");
+        instance.makeLocationFile();
+        instance.checkPreviousMap();
+        return instance;
+    }
+
     public class KeedioSourceImpl extends KeedioSource {
 
         public boolean connect() {
@@ -208,10 +310,7 @@ public class KeedioSourceTest extends TestCase {
             return null;
         }
 
-        public void changeToDirectory(String directory) {
-        }
-
-        public InputStream getInputStream(Object file) throws IOException {
+        public InputStream getInputStream(String path) throws IOException {
             return null;
         }
 
@@ -226,7 +325,7 @@ public class KeedioSourceTest extends TestCase {
         }
 
         @Override
-        public boolean rm(Object file) { return false; }
+        public boolean rm(String path) { return false; }
 
         public boolean isFile(Object file) {
             return false;
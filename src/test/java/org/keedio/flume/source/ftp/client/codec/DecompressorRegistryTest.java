@@ -0,0 +1,159 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.utils.IOUtils;
+
+public class DecompressorRegistryTest extends TestCase {
+
+    private static final String CONTENT = "first line\nsecond line\n";
+
+    /**
+     * Name of the codecs in the registry and in CompressorStreamFactory.
+     */
+    private static final String[][] CODECS = {
+        {"gzip", CompressorStreamFactory.GZIP},
+        {"bzip2", CompressorStreamFactory.BZIP2},
+        {"xz", CompressorStreamFactory.XZ},
+        {"zstd", CompressorStreamFactory.ZSTANDARD},
+        {"lz4", CompressorStreamFactory.LZ4_FRAMED}
+    };
+
+    private final DecompressorRegistry registry = DecompressorRegistry.withDefaults();
+
+    public DecompressorRegistryTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Every codec decodes what commons-compress encodes, concatenated streams
+     * included.
+     */
+    public void testCodecs() throws Exception {
+        for (String[] codec : CODECS) {
+            ByteArrayOutputStream twice = new ByteArrayOutputStream();
+            twice.write(compress(codec[1], CONTENT));
+            twice.write(compress(codec[1], CONTENT));
+            assertEquals(codec[0], CONTENT + CONTENT, decompress(registry.get(codec[0]), twice.toByteArray()));
+        }
+    }
+
+    /**
+     * In auto every codec is detected by its signature, plain files are read
+     * as they are, and the stream is left at its first byte.
+     */
+    public void testDetect() throws Exception {
+        for (String[] codec : CODECS) {
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(compress(codec[1], CONTENT)));
+            Decompressor decompressor = registry.select(DecompressorRegistry.AUTO, "file.txt", in);
+            assertEquals(codec[0], decompressor.getName());
+            assertEquals(CONTENT, decompress(decompressor, in));
+        }
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            out.putArchiveEntry(new ZipArchiveEntry("a.txt"));
+            out.write(CONTENT.getBytes());
+            out.closeArchiveEntry();
+        }
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(zip.toByteArray()));
+        assertEquals("zip", registry.select(DecompressorRegistry.AUTO, "file.gz", in).getName());
+
+        in = new BufferedInputStream(new ByteArrayInputStream(CONTENT.getBytes()));
+        assertNull(registry.select(DecompressorRegistry.AUTO, "file.gz", in));
+        assertEquals(CONTENT, new String(IOUtils.toByteArray(in)));
+
+        in = new BufferedInputStream(new ByteArrayInputStream(new byte[] {0x1f}));
+        assertNull(registry.select(DecompressorRegistry.AUTO, "file.gz", in));
+        assertEquals(0x1f, in.read());
+    }
+
+    /**
+     * Files of a zip are read one after another, a line break is added after
+     * a file not ending in one and directories are skipped.
+     */
+    public void testZipEntries() throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            out.putArchiveEntry(new ZipArchiveEntry("a.txt"));
+            out.write("a1\na2".getBytes());
+            out.closeArchiveEntry();
+            out.putArchiveEntry(new ZipArchiveEntry("dir/"));
+            out.closeArchiveEntry();
+            out.putArchiveEntry(new ZipArchiveEntry("dir/b.txt"));
+            out.write("b1\n".getBytes());
+            out.closeArchiveEntry();
+        }
+        assertEquals("a1\na2\nb1\n", decompress(registry.get("zip"), zip.toByteArray()));
+    }
+
+    /**
+     * Selection by name, by extension of the file, and unknown codecs.
+     */
+    public void testSelect() throws IOException {
+        assertNull(registry.select(null, "file.gz"));
+        assertEquals("gzip", registry.select("GZIP", "file.txt").getName());
+        assertEquals("bzip2", registry.select("bz2", "file.txt").getName());
+        assertEquals("zstd", registry.select(DecompressorRegistry.EXTENSION, "file.log.zst").getName());
+        assertEquals("xz", registry.select(DecompressorRegistry.EXTENSION, "FILE.XZ").getName());
+        assertNull(registry.select(DecompressorRegistry.EXTENSION, "file.txt"));
+        assertNull(registry.select(DecompressorRegistry.EXTENSION, "file"));
+        try {
+            registry.select("rar", "file.rar");
+            fail("rar is not a codec");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("rar"));
+        }
+    }
+
+    /**
+     * A codec registered later replaces the one with the same name.
+     */
+    public void testReplace() throws IOException {
+        Decompressor plain = new AbstractDecompressor("gzip", "gz", "gzip") {
+            @Override
+            public boolean matches(byte[] head, int length) {
+                return false;
+            }
+
+            @Override
+            protected InputStream decode(InputStream in) {
+                return in;
+            }
+        };
+        registry.register(plain);
+        assertSame(plain, registry.get("gzip"));
+        assertSame(plain, registry.select(DecompressorRegistry.EXTENSION, "file.gz"));
+    }
+
+    private byte[] compress(String format, String content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new CompressorStreamFactory().createCompressorOutputStream(format, bytes)) {
+            out.write(content.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    private String decompress(Decompressor decompressor, byte[] compressed) throws IOException {
+        return decompress(decompressor, new ByteArrayInputStream(compressed));
+    }
+
+    private String decompress(Decompressor decompressor, InputStream compressed) throws IOException {
+        try (InputStream in = decompressor.open(compressed)) {
+            return new String(IOUtils.toByteArray(in));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.codec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import com.google.common.io.ByteStreams;
+
+public class GzipMemberInputStreamTest extends TestCase {
+
+    public GzipMemberInputStreamTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * The point to resume from follows the members whose content was
+     * delivered, and a stream from there skipping the content of its member
+     * delivered gives the rest of the content exactly once.
+     */
+    public void testResume() throws IOException {
+        byte[] first = gzip("a1\na2\n");
+        byte[] second = gzip("b1\nb2\n");
+        byte[] file = concat(first, second);
+
+        GzipMemberInputStream members = open(file);
+        byte[] content = new byte[9];
+        ByteStreams.readFully(members, content);
+        assertEquals("a1\na2\nb1\n", new String(content));
+
+        members.commit(3);
+        assertEquals(0, members.getResumeOffset());
+        assertEquals(0, members.getResumeOutput());
+        members.commit(9);
+        assertEquals(first.length, members.getResumeOffset());
+        assertEquals(6, members.getResumeOutput());
+
+        GzipMemberInputStream resumed = open(Arrays.copyOfRange(file, (int) members.getResumeOffset(), file.length));
+        ByteStreams.skipFully(resumed, 9 - members.getResumeOutput());
+        assertEquals("b2\n", new String(ByteStreams.toByteArray(resumed)));
+        resumed.commit(6);
+        assertEquals(second.length, resumed.getResumeOffset());
+    }
+
+    /**
+     * A member still being written fails the read after its content so far,
+     * leaving the point to resume from at its start.
+     */
+    public void testIncompleteMember() throws IOException {
+        byte[] first = gzip("a1\n");
+        byte[] second = gzip("b1\nb2\n");
+        GzipMemberInputStream members = open(concat(first, Arrays.copyOf(second, second.length - 4)));
+        byte[] content = new byte[9];
+        try {
+            ByteStreams.readFully(members, content);
+            fail("the second member is incomplete");
+        } catch (EOFException e) {
+            // expected
+        }
+        members.commit(6);
+        assertEquals(first.length, members.getResumeOffset());
+        assertEquals(3, members.getResumeOutput());
+    }
+
+    /**
+     * BGZF blocks inflated on a pool come out in the order of the file, along
+     * with the plain members between them, and still leave their boundaries
+     * to resume from.
+     */
+    public void testBgzf() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            String content = "block " + i + "\n";
+            expected.append(content);
+            file.write(i == 20 ? gzip(content) : bgzf(content));
+        }
+        file.write(bgzf(""));
+        byte[] compressed = file.toByteArray();
+        assertEquals(-1, GzipMemberInputStream.bgzfBlockSize(gzip("plain")));
+
+        ExecutorService inflaters = Executors.newFixedThreadPool(3);
+        try {
+            GzipMemberInputStream members = open(compressed);
+            members.setInflaters(inflaters, 3);
+            assertEquals(expected.toString(), new String(ByteStreams.toByteArray(members)));
+            members.commit(expected.length());
+            assertEquals(compressed.length, members.getResumeOffset());
+            assertEquals(expected.length(), members.getResumeOutput());
+            members.close();
+        } finally {
+            inflaters.shutdownNow();
+        }
+    }
+
+    /**
+     * A BGZF block still being written fails the read only after the content
+     * of the blocks before it.
+     */
+    public void testTruncatedBgzf() throws IOException {
+        byte[] first = bgzf("a1\n");
+        byte[] second = bgzf("b1\n");
+        ExecutorService inflaters = Executors.newFixedThreadPool(2);
+        try {
+            GzipMemberInputStream members = open(concat(first, Arrays.copyOf(second, second.length - 4)));
+            members.setInflaters(inflaters, 2);
+            byte[] content = new byte[6];
+            try {
+                ByteStreams.readFully(members, content);
+                fail("the second block is incomplete");
+            } catch (EOFException e) {
+                // expected
+            }
+            members.commit(3);
+            assertEquals(first.length, members.getResumeOffset());
+        } finally {
+            inflaters.shutdownNow();
+        }
+    }
+
+    /**
+     * A BGZF block whose trailer claims more content than a block holds, or
+     * a negative size as an int, fails with IOException before allocating
+     * for it.
+     */
+    public void testCorruptBgzfSize() throws IOException {
+        for (int size : new int[] {GzipMemberInputStream.BGZF_MAX_CONTENT + 1, Integer.MAX_VALUE, -1}) {
+            byte[] block = bgzf("a1\n");
+            for (int i = 0; i < 4; i++) {
+                block[block.length - 4 + i] = (byte) (size >>> 8 * i);
+            }
+            try {
+                GzipMemberInputStream.inflate(block);
+                fail("the size of the block is corrupt");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Corrupt BGZF block"));
+            }
+        }
+    }
+
+    private GzipMemberInputStream open(byte[] compressed) {
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(compressed) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(5, len));
+            }
+        });
+        return new GzipMemberInputStream(in);
+    }
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A BGZF block as bgzip writes it: a gzip member whose extra field BC
+     * holds its size minus one.
+     */
+    private byte[] bgzf(String content) throws IOException {
+        byte[] data = content.getBytes();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            deflated.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        int size = 18 + deflated.size() + 8;
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0});
+        writeInt(block, size - 1, 2);
+        deflated.writeTo(block);
+        writeInt(block, crc.getValue(), 4);
+        writeInt(block, data.length, 4);
+        return block.toByteArray();
+    }
+
+    private void writeInt(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (8 * i)) & 0xff);
+        }
+    }
+
+    private byte[] concat(byte[] a, byte[] b) {
+        byte[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return both;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.sources;
+
+import junit.framework.TestCase;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileFilter;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+
+public class MlsdFileFilterTest extends TestCase {
+
+    public MlsdFileFilterTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * The directory listed and its parent are dropped whatever their name,
+     * files and subdirectories are kept.
+     */
+    public void testDropsCurrentAndParent() {
+        MlsdFileFilter filter = new MlsdFileFilter(null);
+        assertFalse(filter.accept(MLSxEntryParser.parseEntry("type=cdir;modify=20180101100000;perm=el; .")));
+        assertFalse(filter.accept(MLSxEntryParser.parseEntry("Type=PDir;Modify=20180101100000; logs")));
+        assertTrue(filter.accept(MLSxEntryParser.parseEntry("type=file;size=12;modify=20180101100000; a.log")));
+        assertTrue(filter.accept(MLSxEntryParser.parseEntry("type=dir;modify=20180101100000; archive")));
+        assertFalse(filter.accept(null));
+    }
+
+    /**
+     * Entries of the directory are passed on to the filter given.
+     */
+    public void testDelegates() {
+        MlsdFileFilter filter = new MlsdFileFilter(new FTPFileFilter() {
+            @Override
+            public boolean accept(FTPFile file) {
+                return file.getName().endsWith(".log");
+            }
+        });
+        assertTrue(filter.accept(MLSxEntryParser.parseEntry("type=file;size=12; a.log")));
+        assertFalse(filter.accept(MLSxEntryParser.parseEntry("type=file;size=12; a.tmp")));
+        assertFalse(filter.accept(MLSxEntryParser.parseEntry("type=cdir; a.log")));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class FingerprintTrackingStoreTest extends TestCase {
+
+    private Path folder;
+
+    public FingerprintTrackingStoreTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folder = Files.createTempDirectory("tracking");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = folder.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(folder);
+        super.tearDown();
+    }
+
+    /**
+     * Sizes survive the table growing well beyond its initial capacity.
+     */
+    public void testPutGet() {
+        TrackingStore store = new FingerprintTrackingStore();
+        for (int i = 0; i < 5000; i++) {
+            store.put("/dir/file" + i + ".log", i);
+        }
+        store.put("/dir/file7.log", 70L);
+        assertEquals(5000, store.size());
+        assertEquals(70L, store.get("/dir/file7.log"));
+        assertEquals(4999L, store.get("/dir/file4999.log"));
+        assertEquals(-1L, store.get("/dir/missing.log"));
+    }
+
+    /**
+     * Files not marked during the poll are removed, same as cleanList does
+     * with the map of processed files.
+     */
+    public void testRemoveUnseen() throws IOException {
+        TrackingStore store = new FingerprintTrackingStore();
+        store.put("file1.log", 2282L);
+        store.put("file234.log", 132L);
+        store.put("file5.log", 133283474L);
+        store.markSeen("file5.log");
+        store.markSeen("file1.log");
+        store.markSeen("file234.log");
+        store.unmarkSeen("file234.log");
+
+        assertEquals(1, store.removeUnseen(null));
+        assertEquals(2, store.size());
+        assertEquals(2282L, store.get("file1.log"));
+        assertEquals(133283474L, store.get("file5.log"));
+        assertEquals(-1L, store.get("file234.log"));
+
+        assertEquals(2, store.removeUnseen(null));
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * Copies of a mapped store, as taken by every compaction, hold the files
+     * tracked without mapping the table again, are not affected by later
+     * changes, and write the same snapshot.
+     */
+    public void testCopyMapped() throws IOException {
+        FingerprintTrackingStore store = new FingerprintTrackingStore(folder);
+        for (int i = 0; i < 5000; i++) {
+            store.put("/dir/file" + i + ".log", i);
+        }
+        store.remove("/dir/file9.log");
+        TrackingStore copy = store.copy();
+        store.put("/dir/file7.log", 70L);
+        store.remove("/dir/file8.log");
+
+        assertTrue(store.isMapped());
+        assertEquals(4999, copy.size());
+        assertEquals(7L, copy.get("/dir/file7.log"));
+        assertEquals(8L, copy.get("/dir/file8.log"));
+        assertEquals(-1L, copy.get("/dir/file9.log"));
+
+        Path snapshot = folder.resolve("snapshot");
+        copy.writeSnapshot(snapshot);
+        TrackingStore read = new FingerprintTrackingStore();
+        read.readSnapshot(snapshot);
+        assertEquals(4999, read.size());
+        assertEquals(8L, read.get("/dir/file8.log"));
+        assertEquals(4998L, read.get("/dir/file4998.log"));
+        store.close();
+    }
+
+    /**
+     * A memory mapped table written as snapshot is read back into another store.
+     */
+    public void testSnapshotMapped() throws IOException {
+        TrackingStore store = new FingerprintTrackingStore(folder);
+        for (int i = 0; i < 3000; i++) {
+            store.put("/dir/file" + i + ".log", i * 10L);
+        }
+        Path snapshot = folder.resolve("status.ser");
+        store.writeSnapshot(snapshot);
+        store.close();
+
+        TrackingStore read = new FingerprintTrackingStore();
+        read.readSnapshot(snapshot);
+        assertEquals(3000, read.size());
+        assertEquals(29990L, read.get("/dir/file2999.log"));
+    }
+
+    /**
+     * Snapshots of the map of processed files are converted to fingerprints.
+     */
+    public void testReadMapSnapshot() throws IOException {
+        Map<String, Long> map = new HashMap<>();
+        map.put("/dir/file1.log", 156L);
+        Path snapshot = folder.resolve("status.ser");
+        new MapTrackingStore(map, new HashSet<String>()).writeSnapshot(snapshot);
+
+        TrackingStore store = new FingerprintTrackingStore();
+        store.readSnapshot(snapshot);
+        assertEquals(1, store.size());
+        assertEquals(156L, store.get("/dir/file1.log"));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.client.tracking;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TrackingJournalTest extends TestCase {
+
+    private Path folder;
+    private Path snapshot;
+
+    public TrackingJournalTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folder = Files.createTempDirectory("journal");
+        snapshot = folder.resolve("status.ser");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = folder.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(folder);
+        super.tearDown();
+    }
+
+    /**
+     * Records appended are replayed in order by a new journal on the same snapshot.
+     */
+    public void testReplay() throws IOException {
+        TrackingJournal journal = new TrackingJournal(snapshot);
+        journal.put("/dir/file1.log", 10L);
+        journal.put("/dir/file2.log", 20L);
+        journal.put("/dir/file1.log", 15L);
+        journal.remove("/dir/file2.log");
+        journal.close();
+
+        Map<String, Long> map = new HashMap<>();
+        assertEquals(4, new TrackingJournal(snapshot).replay(store(map)));
+        assertEquals(1, map.size());
+        assertEquals(Long.valueOf(15L), map.get("/dir/file1.log"));
+    }
+
+    /**
+     * After compacting, the snapshot holds the map and only newer records are replayed.
+     */
+    public void testCompact() throws Exception {
+        TrackingJournal journal = new TrackingJournal(snapshot);
+        journal.put("/dir/file1.log", 10L);
+        Map<String, Long> state = new HashMap<>();
+        state.put("/dir/file1.log", 10L);
+        journal.compact(store(new HashMap<>(state)));
+        journal.awaitCompaction();
+        journal.put("/dir/file2.log", 20L);
+        journal.close();
+
+        Map<String, Long> map = loadSnapshot();
+        assertEquals(state, map);
+        assertEquals(1, new TrackingJournal(snapshot).replay(store(map)));
+        assertEquals(Long.valueOf(20L), map.get("/dir/file2.log"));
+        assertEquals(2, map.size());
+    }
+
+    /**
+     * A record cut by a crash is ignored, previous ones are kept.
+     */
+    public void testTruncatedRecord() throws IOException {
+        TrackingJournal journal = new TrackingJournal(snapshot);
+        journal.put("/dir/file1.log", 10L);
+        journal.put("/dir/file2.log", 20L);
+        journal.close();
+
+        Path generation = folder.resolve("status.ser.journal.1");
+        byte[] content = Files.readAllBytes(generation);
+        Files.write(generation, Arrays.copyOf(content, content.length - 3));
+
+        Map<String, Long> map = new HashMap<>();
+        assertEquals(1, new TrackingJournal(snapshot).replay(store(map)));
+        assertEquals(Long.valueOf(10L), map.get("/dir/file1.log"));
+    }
+
+    /**
+     * Removals of stores not keeping paths are replayed by fingerprint.
+     */
+    public void testReplayFingerprint() throws IOException {
+        TrackingJournal journal = new TrackingJournal(snapshot);
+        journal.put("/dir/file1.log", 10L);
+        journal.put("/dir/file2.log", 20L);
+        journal.removeFingerprint(FingerprintTrackingStore.fingerprint("/dir/file1.log"));
+        journal.close();
+
+        TrackingStore store = new FingerprintTrackingStore();
+        assertEquals(3, new TrackingJournal(snapshot).replay(store));
+        assertEquals(1, store.size());
+        assertEquals(-1L, store.get("/dir/file1.log"));
+        assertEquals(20L, store.get("/dir/file2.log"));
+    }
+
+    /**
+     * A removal by fingerprint can not be applied to a store keeping paths.
+     */
+    public void testReplayFingerprintIntoMap() throws IOException {
+        TrackingJournal journal = new TrackingJournal(snapshot);
+        journal.removeFingerprint(FingerprintTrackingStore.fingerprint("/dir/file1.log"));
+        journal.close();
+
+        try {
+            new TrackingJournal(snapshot).replay(store(new HashMap<String, Long>()));
+            fail("replayed a removal by fingerprint into a map");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("MapTrackingStore"));
+        }
+    }
+
+    private TrackingStore store(Map<String, Long> map) {
+        return new MapTrackingStore(map, new HashSet<String>());
+    }
+
+    private Map<String, Long> loadSnapshot() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(snapshot.toFile()))) {
+            return (HashMap<String, Long>) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.metrics;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+    public LatencyHistogramTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Percentiles are reported within the precision of the buckets.
+     */
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(60000);
+        assertEquals(0, histogram.percentile(0.5));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000000, histogram.max());
+        assertNear(500000, histogram.percentile(0.50));
+        assertNear(950000, histogram.percentile(0.95));
+        assertNear(990000, histogram.percentile(0.99));
+        assertEquals(1000000, histogram.percentile(1.0));
+    }
+
+    /**
+     * Every value falls in a bucket whose upper bound is at most 1/8 above it.
+     */
+    public void testBuckets() {
+        for (long value : new long[] {0, 7, 8, 9, 100, 12345, 1L << 40, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / 8);
+        }
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue(actual + " not near " + expected, actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.metrics;
+
+import junit.framework.TestCase;
+
+public class SourceCounterTest extends TestCase {
+
+    public SourceCounterTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Every source keeps its own counters.
+     */
+    public void testCountersPerInstance() {
+        SourceCounter first = new SourceCounter("SOURCE.first");
+        SourceCounter second = new SourceCounter("SOURCE.second");
+        first.incrementFilesCount();
+        first.incrementCountSizeProc(2048);
+        second.incrementFilesCount();
+        second.incrementFilesCount();
+
+        assertEquals(1, first.getFilesCount());
+        assertEquals(2, first.getCountSizeProcKb());
+        assertEquals(2, second.getFilesCount());
+        assertEquals(0, second.getCountSizeProc());
+    }
+
+    /**
+     * Increments from several threads are not lost.
+     */
+    public void testConcurrentIncrements() throws InterruptedException {
+        final SourceCounter counter = new SourceCounter("SOURCE.concurrent");
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.incrementEventCount();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, counter.getEventCount());
+    }
+}
@@ -0,0 +1,71 @@
+package org.keedio.flume.source.ftp.source;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flume.Event;
+import org.apache.flume.channel.ChannelProcessor;
+import org.testng.Assert;
+
+/**
+ * Channel processor keeping the body of every event delivered, for
+ * integration tests checking what a source sent.
+ */
+public class CapturingChannelProcessor extends ChannelProcessor {
+
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+
+    public CapturingChannelProcessor() {
+        super(null);
+    }
+
+    @Override
+    public void processEvent(Event event) {
+        bodies.add(new String(event.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void processEventBatch(List<Event> events) {
+        for (Event event : events) {
+            processEvent(event);
+        }
+    }
+
+    /**
+     * @return bodies of the events delivered, in order
+     */
+    public List<String> getBodies() {
+        synchronized (bodies) {
+            return new ArrayList<>(bodies);
+        }
+    }
+
+    /**
+     * @return times each body was delivered
+     */
+    public Map<String, Integer> countBodies() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String body : getBodies()) {
+            Integer count = counts.get(body);
+            counts.put(body, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * Check every line expected was delivered once, and nothing else.
+     *
+     * @param expected bodies
+     */
+    public void assertDeliveredOnce(List<String> expected) {
+        Map<String, Integer> counts = countBodies();
+        for (String line : expected) {
+            Assert.assertEquals(counts.get(line), Integer.valueOf(1), "deliveries of " + line);
+        }
+        Assert.assertEquals(getBodies().size(), expected.size());
+    }
+}
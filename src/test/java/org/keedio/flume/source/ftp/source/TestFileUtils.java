@@ -54,6 +54,24 @@ public class TestFileUtils {
         return Files.createTempFile(createTmpDir(), "flume-ftp-source-tmpfile-", null);
     }
 
+    /**
+     * Appends lines prefix-from to prefix-(to - 1) to a file, creating it if needed.
+     *
+     * @param file the path representing the file to which the lines will be appended.
+     * @return a collection containing the lines appended to the provided file.
+     */
+    public static List<String> appendLines(Path file, String prefix, int from, int to) throws IOException {
+        List<String> lines = new LinkedList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            lines.add(prefix + "-" + i);
+            content.append(prefix).append('-').append(i).append('\n');
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+        return lines;
+    }
+
     /**
      * Appends a predefined number of random ASCII chars to a given file.
      *
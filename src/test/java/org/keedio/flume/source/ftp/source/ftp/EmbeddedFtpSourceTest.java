@@ -37,7 +37,7 @@ public class EmbeddedFtpSourceTest extends AbstractFtpSourceTest {
     public void testProcessNoFile() {
         try {
             PollableSource.Status proc = ftpSource.process();
-            Assert.assertEquals(PollableSource.Status.READY, proc);
+            Assert.assertEquals(PollableSource.Status.BACKOFF, proc);
             Assert.assertEquals(ftpSourceCounter.getFilesCount(), 0);
             Assert.assertEquals(ftpSourceCounter.getFilesProcCount(), 0);
             Assert.assertEquals(ftpSourceCounter.getFilesProcCountError(), 0);
@@ -0,0 +1,707 @@
+package org.keedio.flume.source.ftp.source.ftp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.EventDeliveryException;
+import org.apache.flume.PollableSource;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.command.Command;
+import org.apache.ftpserver.command.CommandFactory;
+import org.apache.ftpserver.command.CommandFactoryFactory;
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.impl.FtpIoSession;
+import org.apache.ftpserver.impl.FtpServerContext;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.KeedioSourcePool;
+import org.keedio.flume.source.ftp.client.filters.KeedioFileFilter;
+import org.keedio.flume.source.ftp.client.sources.FTPSource;
+import org.keedio.flume.source.ftp.client.tracking.FingerprintTrackingStore;
+import org.keedio.flume.source.ftp.source.CapturingChannelProcessor;
+import org.keedio.flume.source.ftp.source.Source;
+import org.keedio.flume.source.ftp.source.TestFileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Integration tests driving a source with a real configuration against an
+ * embedded FTP server of its own, checking every line is delivered exactly
+ * once across polls. Each test works in a directory of its own.
+ */
+public class EmbeddedFtpTransferTest {
+
+    private static final int PORT = 2122;
+    private static final int NO_MLSD_PORT = 2125;
+    private static final String USER = "flumetest";
+
+    private Path homeDirectory;
+    private Path trackingFolder;
+    private FtpServer ftpServer;
+    private final List<Source> sources = new ArrayList<>();
+
+    @BeforeClass
+    public void initServer() throws IOException, FtpException {
+        homeDirectory = TestFileUtils.createTmpDir();
+        trackingFolder = TestFileUtils.createTmpDir();
+        ftpServer = createServer(PORT, homeDirectory);
+        ftpServer.start();
+    }
+
+    @AfterClass
+    public void destroyServer() throws IOException {
+        if (ftpServer != null && !ftpServer.isStopped()) {
+            ftpServer.stop();
+        }
+        TestFileUtils.forceDelete(homeDirectory);
+        TestFileUtils.forceDelete(trackingFolder);
+    }
+
+    @AfterMethod
+    public void stopSources() {
+        for (Source source : sources) {
+            source.stop();
+        }
+        sources.clear();
+    }
+
+    /**
+     * With parallel discovery files listed over pooled connections are still
+     * marked as seen in the map of the source, so they are not evicted and
+     * ingested again by later polls.
+     */
+    @Test
+    public void testParallelDiscoveryNoReingestion() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("parallel"));
+        List<String> expected = new ArrayList<>();
+        for (String subdirectory : new String[] {"a", "b", "a/c"}) {
+            Path parent = Files.createDirectories(directory.resolve(subdirectory));
+            for (int i = 0; i < 3; i++) {
+                expected.addAll(TestFileUtils.appendLines(parent.resolve("file" + i), subdirectory + i, 0, 20));
+            }
+        }
+
+        Map<String, String> settings = settings("parallel");
+        settings.put("discovery.threads", "2");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 4);
+
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * A tree deeper than the queue of directories is walked whole by the
+     * discovery threads, and not walked at all unless recursive.
+     */
+    @Test
+    public void testParallelDiscoveryDeepTree() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("deep"));
+        List<String> top = TestFileUtils.appendLines(directory.resolve("file"), "deep", 0, 10);
+        List<String> expected = new ArrayList<>(top);
+        Path parent = directory;
+        for (int depth = 0; depth < 12; depth++) {
+            parent = Files.createDirectory(parent.resolve("d" + depth));
+            Path sibling = Files.createDirectory(parent.resolveSibling("s" + depth));
+            expected.addAll(TestFileUtils.appendLines(parent.resolve("file"), "d" + depth, 0, 10));
+            expected.addAll(TestFileUtils.appendLines(sibling.resolve("file"), "s" + depth, 0, 10));
+        }
+
+        Map<String, String> settings = settings("deep");
+        settings.put("discovery.threads", "3");
+        settings.put("discovery.queue.size", "1");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 3);
+        channel.assertDeliveredOnce(expected);
+
+        settings.put("search.recursive", "false");
+        settings.put("file.name", "deep-top.ser");
+        CapturingChannelProcessor topChannel = new CapturingChannelProcessor();
+        poll(createSource(settings, topChannel), 2);
+        topChannel.assertDeliveredOnce(top);
+    }
+
+    /**
+     * Threads borrowing more connections than the pool holds wait for one to
+     * be released, and never share one at the same time.
+     */
+    @Test
+    public void testPoolConcurrentBorrow() throws Exception {
+        Path directory = Files.createDirectory(homeDirectory.resolve("pool"));
+        TestFileUtils.appendLines(directory.resolve("file"), "pool", 0, 10);
+
+        final int maxConnections = 3;
+        final KeedioSourcePool pool = new KeedioSourcePool(new Context(settings("pool")), maxConnections);
+        final Set<KeedioSource> borrowed = Collections.newSetFromMap(new ConcurrentHashMap<KeedioSource, Boolean>());
+        final Set<KeedioSource> used = Collections.newSetFromMap(new ConcurrentHashMap<KeedioSource, Boolean>());
+        final AtomicInteger maxBorrowed = new AtomicInteger();
+        final AtomicInteger listed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                tasks.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        KeedioSource connection = pool.borrow();
+                        try {
+                            Assert.assertTrue(borrowed.add(connection), "connection borrowed twice");
+                            used.add(connection);
+                            synchronized (maxBorrowed) {
+                                maxBorrowed.set(Math.max(maxBorrowed.get(), borrowed.size()));
+                            }
+                            if (connection.listElements("/pool", new KeedioFileFilter("")).size() == 1) {
+                                listed.incrementAndGet();
+                            }
+                            borrowed.remove(connection);
+                        } finally {
+                            pool.release(connection);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+        Assert.assertEquals(listed.get(), 40);
+        Assert.assertTrue(used.size() <= maxConnections, used.size() + " connections opened");
+        Assert.assertTrue(maxBorrowed.get() <= maxConnections);
+    }
+
+    /**
+     * Pooled connections only transfer: they get no store of their own, even
+     * a memory mapped one, nor decompressors until asked.
+     */
+    @Test
+    public void testPoolConnectionsTransportOnly() throws Exception {
+        Map<String, String> settings = settings("transport");
+        settings.put("tracking.store", "fingerprint");
+        settings.put("tracking.store.mmap", "true");
+        KeedioSourcePool pool = new KeedioSourcePool(new Context(settings), 1);
+        try {
+            KeedioSource connection = pool.borrow();
+            Assert.assertFalse(connection.getTrackingStore() instanceof FingerprintTrackingStore);
+            Assert.assertNull(connection.getFolder());
+            pool.release(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Files transferred at the same time over pooled connections are
+     * delivered once, with growth picked up by later polls.
+     */
+    @Test
+    public void testParallelTransfers() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("transfers"));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + i), "t" + i, 0, 500));
+        }
+
+        Map<String, String> settings = settings("transfers");
+        settings.put("max.connections", "3");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 2);
+        for (int i = 0; i < 6; i += 2) {
+            expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + i), "t" + i, 500, 700));
+        }
+        poll(source, 2);
+
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * A file that grew between polls is retrieved from the offset recorded,
+     * so only the lines appended are delivered by the next poll.
+     */
+    @Test
+    public void testResumeGrownFile() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("grown"));
+        Path file = directory.resolve("file");
+        List<String> expected = TestFileUtils.appendLines(file, "grown", 0, 100);
+
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings("grown"), channel);
+        poll(source, 1);
+        Assert.assertEquals(source.getKeedioSource().getTrackingStore().get("/grown/file"), Files.size(file));
+
+        expected.addAll(TestFileUtils.appendLines(file, "grown", 100, 150));
+        poll(source, 1);
+        Assert.assertEquals(channel.getBodies().subList(100, 150), expected.subList(100, 150));
+        poll(source, 1);
+
+        channel.assertDeliveredOnce(expected);
+        Assert.assertEquals(source.getKeedioSource().getTrackingStore().get("/grown/file"), Files.size(file));
+    }
+
+    /**
+     * A bzip2 file detected in auto and grown by a new stream is resumed by
+     * decompressing that stream only; bytes added in the middle of a stream
+     * are skipped instead of delivered compressed.
+     */
+    @Test
+    public void testResumeGrownBzip2Auto() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("bzip2"));
+        Path file = directory.resolve("file.bz2");
+        List<String> expected = appendBzip2Lines(file, "bzip2", 0, 100);
+
+        Map<String, String> settings = settings("bzip2");
+        settings.put("compressed", "auto");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 1);
+        Assert.assertEquals(channel.getBodies(), expected);
+
+        expected.addAll(appendBzip2Lines(file, "bzip2", 100, 150));
+        poll(source, 1);
+        Assert.assertEquals(channel.getBodies(), expected);
+
+        byte[] stream = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOfRange(stream, 10, 60), StandardOpenOption.APPEND);
+        poll(source, 2);
+        channel.assertDeliveredOnce(expected);
+        Assert.assertEquals(source.getKeedioSource().getTrackingStore().get("/bzip2/file.bz2"), Files.size(file));
+    }
+
+    /**
+     * A transfer failing part way through records the lines the channel took,
+     * and the next poll resumes right after them.
+     */
+    @Test
+    public void testResumeAfterPartialRead() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("partial"));
+        Path file = directory.resolve("file");
+        List<String> expected = TestFileUtils.appendLines(file, "partial", 0, 100);
+
+        Map<String, String> settings = settings("partial");
+        settings.put("batch.size", "10");
+        FailingChannelProcessor channel = new FailingChannelProcessor(3);
+        Source source = createSource(settings, channel);
+        try {
+            poll(source, 1);
+        } finally {
+            Thread.interrupted();
+        }
+        Assert.assertEquals(channel.getBodies(), expected.subList(0, 30));
+        Assert.assertEquals(source.getKeedioSource().getTrackingStore().get("/partial/file"),
+            (long) "partial-0\n".length() * 10 + "partial-10\n".length() * 20);
+
+        poll(source, 2);
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * A file removed between its listing and its transfer is refused by the
+     * server, and the connection is still usable: the source goes on with the
+     * next polls instead of waiting for a reply that never comes.
+     */
+    @Test(timeOut = 30000)
+    public void testRetrievalRefused() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("vanished"));
+        final Path first = directory.resolve("a");
+        final Path second = directory.resolve("b");
+        final List<String> linesA = TestFileUtils.appendLines(first, "a", 0, 20);
+        final List<String> linesB = TestFileUtils.appendLines(second, "b", 0, 20);
+
+        // whichever file is transferred first removes the other one
+        CapturingChannelProcessor channel = new CapturingChannelProcessor() {
+            private boolean removed;
+
+            @Override
+            public void processEventBatch(List<Event> events) {
+                super.processEventBatch(events);
+                if (!removed) {
+                    removed = true;
+                    String body = new String(events.get(0).getBody(), StandardCharsets.UTF_8);
+                    try {
+                        Files.delete(body.startsWith("a") ? second : first);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+        Source source = createSource(settings("vanished"), channel);
+        poll(source, 1);
+        List<String> expected = new ArrayList<>(Files.exists(first) ? linesA : linesB);
+        channel.assertDeliveredOnce(expected);
+
+        expected.addAll(TestFileUtils.appendLines(directory.resolve("c"), "c", 0, 20));
+        poll(source, 2);
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * With listing.mode mlsd a server advertising MLST is listed with MLSD,
+     * recursively and without its directories listed as their own entries.
+     */
+    @Test
+    public void testMlsdListing() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("mlsd"));
+        List<String> expected = TestFileUtils.appendLines(directory.resolve("file"), "mlsd", 0, 50);
+        Path subdirectory = Files.createDirectory(directory.resolve("sub"));
+        expected.addAll(TestFileUtils.appendLines(subdirectory.resolve("file"), "mlsd-sub", 0, 50));
+
+        Map<String, String> settings = settings("mlsd");
+        settings.put("listing.mode", "mlsd");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 1);
+        Assert.assertTrue(((FTPSource) source.getKeedioSource()).isMlsdSupported());
+
+        expected.addAll(TestFileUtils.appendLines(subdirectory.resolve("file"), "mlsd-sub", 50, 60));
+        poll(source, 2);
+
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * With listing.mode mlsd a server not supporting MLSD is listed with LIST.
+     */
+    @Test
+    public void testMlsdNotSupported() throws IOException, FtpException, EventDeliveryException {
+        Path home = TestFileUtils.createTmpDir();
+        Path directory = Files.createDirectory(home.resolve("nomlsd"));
+        List<String> expected = TestFileUtils.appendLines(directory.resolve("file"), "nomlsd", 0, 50);
+        Path subdirectory = Files.createDirectory(directory.resolve("sub"));
+        expected.addAll(TestFileUtils.appendLines(subdirectory.resolve("file"), "nomlsd-sub", 0, 50));
+
+        CommandFactoryFactory commands = new CommandFactoryFactory();
+        commands.addCommand("FEAT", new Command() {
+            @Override
+            public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request) {
+                session.write(new DefaultFtpReply(FtpReply.REPLY_211_SYSTEM_STATUS_REPLY,
+                    new String[] {"Extensions supported", "SIZE", "MDTM", "End"}));
+            }
+        });
+        Command notImplemented = new Command() {
+            @Override
+            public void execute(FtpIoSession session, FtpServerContext context, FtpRequest request) {
+                session.write(new DefaultFtpReply(FtpReply.REPLY_502_COMMAND_NOT_IMPLEMENTED, "Not implemented"));
+            }
+        };
+        commands.addCommand("MLSD", notImplemented);
+        commands.addCommand("MLST", notImplemented);
+        FtpServer server = createServer(NO_MLSD_PORT, home, commands.createCommandFactory());
+        server.start();
+        try {
+            Map<String, String> settings = settings("nomlsd");
+            settings.put("port", String.valueOf(NO_MLSD_PORT));
+            settings.put("listing.mode", "mlsd");
+            CapturingChannelProcessor channel = new CapturingChannelProcessor();
+            Source source = createSource(settings, channel);
+            poll(source, 1);
+            Assert.assertFalse(((FTPSource) source.getKeedioSource()).isMlsdSupported());
+
+            expected.addAll(TestFileUtils.appendLines(subdirectory.resolve("file"), "nomlsd-sub", 50, 60));
+            poll(source, 2);
+
+            channel.assertDeliveredOnce(expected);
+        } finally {
+            stopSources();
+            server.stop();
+            TestFileUtils.forceDelete(home);
+        }
+    }
+
+    /**
+     * Sizes asked to the server are the current ones, from LIST or MLST, and
+     * -1 for what is not a file.
+     */
+    @Test
+    public void testStatSize() throws Exception {
+        Path directory = Files.createDirectory(homeDirectory.resolve("stat"));
+        Path file = directory.resolve("file");
+        TestFileUtils.appendLines(file, "stat", 0, 10);
+        Files.createDirectory(directory.resolve("sub"));
+
+        for (String listingMode : new String[] {FTPSource.LISTING_MODE_LIST, FTPSource.LISTING_MODE_MLSD}) {
+            Map<String, String> settings = settings("stat");
+            settings.put("listing.mode", listingMode);
+            KeedioSourcePool pool = new KeedioSourcePool(new Context(settings), 1);
+            try {
+                KeedioSource connection = pool.borrow();
+                Assert.assertEquals(connection.statSize("/stat/file"), Files.size(file), listingMode);
+                TestFileUtils.appendLines(file, "stat", 10, 20);
+                Assert.assertEquals(connection.statSize("/stat/file"), Files.size(file), listingMode);
+                Assert.assertEquals(connection.statSize("/stat/missing"), -1, listingMode);
+                Assert.assertEquals(connection.statSize("/stat/sub"), -1, listingMode);
+                pool.release(connection);
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * With deleteOnCompletion files are removed once transferred, unless
+     * they grew meanwhile: those are removed after the poll reading the rest.
+     */
+    @Test
+    public void testDeleteOnCompletion() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("delete"));
+        Path done = directory.resolve("done");
+        Path growing = directory.resolve("growing");
+        List<String> expected = TestFileUtils.appendLines(done, "done", 0, 50);
+        expected.addAll(TestFileUtils.appendLines(growing, "growing", 0, 50));
+
+        Map<String, String> settings = settings("delete");
+        settings.put("deleteOnCompletion", "true");
+        GrowingChannelProcessor channel = new GrowingChannelProcessor(growing, "growing-", 50, 60);
+        Source source = createSource(settings, channel);
+        poll(source, 1);
+        Assert.assertFalse(Files.exists(done));
+        Assert.assertTrue(Files.exists(growing));
+
+        poll(source, 1);
+        Assert.assertFalse(Files.exists(growing));
+        expected.addAll(channel.appended);
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * Once started, files discovered by the scheduler while earlier ones are
+     * still queued or transferred are delivered once, over the main
+     * connection as over pooled ones.
+     */
+    @Test
+    public void testStartedPolls() throws IOException, InterruptedException, EventDeliveryException {
+        for (String maxConnections : new String[] {"1", "3"}) {
+            String name = "started" + maxConnections;
+            Path directory = Files.createDirectory(homeDirectory.resolve(name));
+            Map<String, String> settings = settings(name);
+            settings.put("run.discover.delay", "50");
+            settings.put("max.connections", maxConnections);
+            CapturingChannelProcessor channel = new CapturingChannelProcessor();
+            Source source = createSource(settings, channel);
+            source.start();
+
+            List<String> expected = new ArrayList<>();
+            for (int round = 0; round < 5; round++) {
+                expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + round), "r" + round, 0, 300));
+                for (int i = 0; i < round; i += 2) {
+                    expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + i), "r" + i,
+                        300 * round, 300 * round + 100));
+                }
+                drain(source, channel, expected.size());
+            }
+            // later discoveries find nothing more to deliver
+            Thread.sleep(300);
+            drain(source, channel, expected.size());
+            channel.assertDeliveredOnce(expected);
+        }
+    }
+
+    /**
+     * A run.discover.delay of 0, accepted before discovery was scheduled,
+     * still starts a source that delivers files.
+     */
+    @Test
+    public void testStartedWithoutDelay() throws IOException, InterruptedException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("nodelay"));
+        Map<String, String> settings = settings("nodelay");
+        settings.put("run.discover.delay", "0");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        source.start();
+
+        List<String> expected = TestFileUtils.appendLines(directory.resolve("file"), "l", 0, 300);
+        drain(source, channel, expected.size());
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * @param directory of the home directory the source reads
+     * @return settings of a source reading directory, tracking in a file of
+     * its own
+     */
+    Map<String, String> settings(String directory) {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("client.source", "ftp");
+        settings.put("name.server", "localhost");
+        settings.put("port", String.valueOf(PORT));
+        settings.put("user", USER);
+        settings.put("password", USER);
+        settings.put("working.directory", "/" + directory);
+        settings.put("folder", trackingFolder.toString());
+        settings.put("file.name", directory + ".ser");
+        return settings;
+    }
+
+    /**
+     * Append lines to file as a bzip2 stream of their own.
+     */
+    static List<String> appendBzip2Lines(Path file, String prefix, int from, int to) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            for (int i = from; i < to; i++) {
+                lines.add(prefix + "-" + i);
+                out.write((prefix + "-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    Source createSource(Map<String, String> settings, CapturingChannelProcessor channel) {
+        Source source = new Source();
+        source.setName(settings.get("file.name"));
+        source.configure(new Context(settings));
+        source.setChannelProcessor(channel);
+        sources.add(source);
+        return source;
+    }
+
+    /**
+     * Run discovery and transfers polls times, as the runner of a source not
+     * started does.
+     */
+    static void poll(Source source, int polls) throws EventDeliveryException {
+        for (int i = 0; i < polls; i++) {
+            source.process();
+        }
+    }
+
+    /**
+     * Process a started source until the channel took delivered events, or
+     * ten seconds passed.
+     */
+    static void drain(Source source, CapturingChannelProcessor channel, int delivered)
+            throws EventDeliveryException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (channel.getBodies().size() < delivered && System.currentTimeMillis() < deadline) {
+            if (source.process() == PollableSource.Status.BACKOFF) {
+                Thread.sleep(20);
+            }
+        }
+        source.process();
+    }
+
+    /**
+     * Channel failing one batch, as an interrupted delivery does, so the
+     * transfer stops with the batches before it delivered.
+     */
+    static class FailingChannelProcessor extends CapturingChannelProcessor {
+
+        private final int failing;
+        private int batches;
+
+        /**
+         * @param failing index of the batch that fails
+         */
+        FailingChannelProcessor(int failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public void processEventBatch(List<Event> events) {
+            if (batches++ == failing) {
+                Thread.currentThread().interrupt();
+                throw new ChannelException("Batch " + failing + " failed");
+            }
+            super.processEventBatch(events);
+        }
+    }
+
+    /**
+     * Channel appending lines to a file when it receives the first batch of
+     * it, as a writer still writing while the file is transferred.
+     */
+    static class GrowingChannelProcessor extends CapturingChannelProcessor {
+
+        private final Path file;
+        private final String prefix;
+        private final int from;
+        private final int to;
+        private List<String> appended;
+
+        GrowingChannelProcessor(Path file, String prefix, int from, int to) {
+            this.file = file;
+            this.prefix = prefix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void processEventBatch(List<Event> events) {
+            super.processEventBatch(events);
+            if (appended == null && new String(events.get(0).getBody(), StandardCharsets.UTF_8).startsWith(prefix)) {
+                try {
+                    appended = TestFileUtils.appendLines(file, prefix.substring(0, prefix.length() - 1), from, to);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    static FtpServer createServer(int port, Path home) throws FtpException {
+        return createServer(port, home, null);
+    }
+
+    /**
+     * @param commands of the server, null for the default ones
+     */
+    static FtpServer createServer(int port, Path home, CommandFactory commands) throws FtpException {
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        if (commands != null) {
+            serverFactory.setCommandFactory(commands);
+        }
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(port);
+        serverFactory.addListener("default", listenerFactory.createListener());
+
+        UserManager userManager = new PropertiesUserManagerFactory().createUserManager();
+        BaseUser user = new BaseUser();
+        user.setName(USER);
+        user.setPassword(USER);
+        user.setHomeDirectory(home.toFile().getAbsolutePath());
+        user.setAuthorities(Collections.<Authority>singletonList(new WritePermission()));
+        userManager.save(user);
+        serverFactory.setUserManager(userManager);
+        return serverFactory.createServer();
+    }
+}
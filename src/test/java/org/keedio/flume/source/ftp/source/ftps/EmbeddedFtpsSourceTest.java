@@ -41,7 +41,7 @@ public class EmbeddedFtpsSourceTest extends AbstractFtpsSourceTest {
     public void testProcessNoFile() {
         try {
             PollableSource.Status proc = ftpsSource.process();
-            Assert.assertEquals(PollableSource.Status.READY, proc);
+            Assert.assertEquals(PollableSource.Status.BACKOFF, proc);
             Assert.assertEquals(ftpSourceCounter.getFilesCount(), 0);
             Assert.assertEquals(ftpSourceCounter.getFilesProcCount(), 0);
             Assert.assertEquals(ftpSourceCounter.getFilesProcCountError(), 0);
@@ -0,0 +1,162 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.load;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tree of text files for load runs. Files are spread over depth levels of
+ * fanout directories each; their sizes follow a uniform or a log-uniform
+ * distribution between sizeMin and sizeMax, the latter giving many small
+ * files and a few big ones. Every file is made of lines of lineLength random
+ * ASCII chars, so the events expected from the tree are known beforehand.
+ *
+ * The same seed always gives the same tree and the same appends.
+ */
+public class FileTree {
+
+    private static final byte[] CHARS =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".getBytes();
+
+    private final Path root;
+    private final int depth;
+    private final int fanout;
+    private final long sizeMin;
+    private final long sizeMax;
+    private final boolean logUniform;
+    private final int lineLength;
+    private final Random random;
+    private final List<Path> files = new ArrayList<>();
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     *
+     * @param root directory holding the tree, created if missing
+     * @param depth levels of directories under root, 0 to keep all files in it
+     * @param fanout directories per level
+     * @param sizeMin smallest file size in bytes
+     * @param sizeMax biggest file size in bytes
+     * @param distribution uniform or log
+     * @param lineLength chars per line, terminator excluded
+     * @param seed of the random sizes, paths and contents
+     */
+    public FileTree(Path root, int depth, int fanout, long sizeMin, long sizeMax, String distribution,
+        int lineLength, long seed) {
+        this.root = root;
+        this.depth = Math.max(0, depth);
+        this.fanout = Math.max(1, fanout);
+        this.sizeMin = Math.max(1, sizeMin);
+        this.sizeMax = Math.max(this.sizeMin, sizeMax);
+        this.logUniform = "log".equalsIgnoreCase(distribution);
+        this.lineLength = Math.max(1, lineLength);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Write count files, spread evenly over the leaf directories.
+     *
+     * @param count of files
+     * @throws IOException
+     */
+    public void generate(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Path dir = root;
+            int leaf = i;
+            for (int level = 0; level < depth; level++) {
+                dir = dir.resolve("d" + level + "_" + leaf % fanout);
+                leaf /= fanout;
+            }
+            Files.createDirectories(dir);
+            Path file = dir.resolve("file" + i + ".txt");
+            write(file, nextSize());
+            files.add(file);
+        }
+    }
+
+    /**
+     * Append about size bytes of lines to one of the files, picked at random.
+     * The lines are written at once, so the source does not find half a line
+     * at the end of the file.
+     *
+     * @param size bytes to append, rounded to whole lines
+     * @throws IOException
+     */
+    public synchronized void append(long size) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        long count = count(size);
+        byte[] content = new byte[(int) (count * (lineLength + 1))];
+        for (int i = 0; i < content.length; i += lineLength + 1) {
+            fill(content, i);
+        }
+        Files.write(files.get(random.nextInt(files.size())), content, StandardOpenOption.APPEND);
+        lines.addAndGet(count);
+        bytes.addAndGet(content.length);
+    }
+
+    /**
+     * @return lines written so far, that is, events expected
+     */
+    public long getLines() {
+        return lines.get();
+    }
+
+    /**
+     * @return bytes written so far, terminators included
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return number of files in the tree
+     */
+    public int getFileCount() {
+        return files.size();
+    }
+
+    private long nextSize() {
+        if (logUniform) {
+            double min = Math.log(sizeMin);
+            double max = Math.log(sizeMax);
+            return Math.round(Math.exp(min + random.nextDouble() * (max - min)));
+        }
+        return sizeMin + (long) (random.nextDouble() * (sizeMax - sizeMin));
+    }
+
+    private long count(long size) {
+        return Math.max(1, size / (lineLength + 1));
+    }
+
+    private void fill(byte[] buffer, int offset) {
+        for (int j = 0; j < lineLength; j++) {
+            buffer[offset + j] = CHARS[random.nextInt(CHARS.length)];
+        }
+        buffer[offset + lineLength] = '\n';
+    }
+
+    private void write(Path file, long size) throws IOException {
+        long count = count(size);
+        byte[] line = new byte[lineLength + 1];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            for (long i = 0; i < count; i++) {
+                fill(line, 0);
+                out.write(line);
+            }
+        }
+        lines.addAndGet(count);
+        bytes.addAndGet(count * line.length);
+    }
+}
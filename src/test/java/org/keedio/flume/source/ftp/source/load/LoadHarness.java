@@ -0,0 +1,373 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.PollableSource;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.keedio.flume.source.ftp.metrics.SourceCounter;
+import org.keedio.flume.source.ftp.source.Source;
+import org.keedio.flume.source.ftp.source.TestFileUtils;
+import org.keedio.flume.source.ftp.source.ftp.server.EmbeddedFTPServer;
+import org.keedio.flume.source.ftp.source.ftps.server.EmbeddedFTPSserver;
+import org.keedio.flume.source.ftp.source.sshd.server.EmbeddedSSHDServer;
+
+/**
+ * End to end load run of the source against the embedded FTP, FTPS and SSHD
+ * servers. For every protocol a tree of files is generated in the home of
+ * the server, a source is started on it and driven as the Flume runner would,
+ * while some of the files get lines appended, until every line written has
+ * become an event. The run is reported as events/sec, bytes/sec, time to
+ * discover the whole tree, latency of listings, transfers and commits, and peak heap.
+ *
+ * It is not a test and is not run by the build; run it with
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.keedio.flume.source.ftp.source.load.LoadHarness
+ * -Dexec.args="protocols=ftp,sftp files=2000 max.connections=4"
+ *
+ * Arguments are key=value pairs; the keys below configure the run, any other
+ * one is handed to the source, as in the agent configuration.
+ */
+public class LoadHarness {
+
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("protocols", "ftp,ftps,sftp");
+        DEFAULTS.put("files", "1000");
+        DEFAULTS.put("depth", "2");
+        DEFAULTS.put("fanout", "4");
+        DEFAULTS.put("size.min", "1024");
+        DEFAULTS.put("size.max", "262144");
+        DEFAULTS.put("size.distribution", "log");
+        DEFAULTS.put("line.length", "100");
+        DEFAULTS.put("append.rate", "0");
+        DEFAULTS.put("append.bytes", "4096");
+        DEFAULTS.put("append.seconds", "10");
+        DEFAULTS.put("seed", "1");
+        DEFAULTS.put("timeout.seconds", "600");
+    }
+
+    private static final long SAMPLE_MS = 50;
+
+    private final Map<String, String> options;
+    private final Map<String, String> sourceOptions;
+
+    /**
+     *
+     * @param args key=value pairs
+     */
+    public LoadHarness(String[] args) {
+        options = new HashMap<>(DEFAULTS);
+        sourceOptions = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            if (DEFAULTS.containsKey(pair[0])) {
+                options.put(pair[0], pair[1]);
+            } else {
+                sourceOptions.put(pair[0], pair[1]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadHarness harness = new LoadHarness(args);
+        System.out.println(harness.describe());
+        for (String protocol : harness.get("protocols").split(",")) {
+            System.out.println(harness.run(protocol.trim()));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Generate a tree in the home of the server of protocol and drain it
+     * with a source.
+     *
+     * @param protocol ftp, ftps or sftp
+     * @return report of the run
+     * @throws Exception
+     */
+    public String run(String protocol) throws Exception {
+        Path home = startServer(protocol);
+        String directory = "load-" + protocol + "-" + System.currentTimeMillis();
+        FileTree tree = new FileTree(home.resolve(directory), getInt("depth"), getInt("fanout"),
+            getLong("size.min"), getLong("size.max"), get("size.distribution"), getInt("line.length"),
+            getLong("seed"));
+        tree.generate(getInt("files"));
+
+        Map<String, String> context = sourceContext(protocol);
+        context.put("working.directory", "/" + directory);
+        context.put("file.name", directory + ".ser");
+        context.put("folder", TestFileUtils.createTmpDir().toString());
+
+        CountingChannelProcessor channel = new CountingChannelProcessor();
+        Source source = new Source();
+        source.setName("load-" + protocol);
+        source.configure(new Context(context));
+        SourceCounter counter = new SourceCounter("SOURCE.load-" + protocol);
+        source.setFtpSourceCounter(counter);
+        source.setChannelProcessor(channel);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        final Sampler sampler = new Sampler(counter, tree.getFileCount());
+        ScheduledExecutorService sampling = Executors.newSingleThreadScheduledExecutor();
+        sampling.scheduleAtFixedRate(sampler, 0, SAMPLE_MS, TimeUnit.MILLISECONDS);
+        ScheduledExecutorService appends = startAppends(tree);
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(getLong("timeout.seconds"));
+        long appendsEnd = start + TimeUnit.SECONDS.toNanos(appending() ? getLong("append.seconds") : 0);
+        source.start();
+        try {
+            while (System.nanoTime() < deadline
+                && (System.nanoTime() < appendsEnd || channel.getEvents() < tree.getLines())) {
+                if (System.nanoTime() >= appendsEnd) {
+                    appends.shutdown();
+                }
+                if (source.process() == PollableSource.Status.BACKOFF) {
+                    Thread.sleep(SAMPLE_MS);
+                }
+            }
+        } finally {
+            appends.shutdownNow();
+            sampling.shutdownNow();
+            appends.awaitTermination(10, TimeUnit.SECONDS);
+            source.stop();
+            stopServer(protocol);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.run();
+
+        StringBuilder report = new StringBuilder(protocol);
+        report.append(": files=").append(tree.getFileCount())
+            .append(" events=").append(channel.getEvents()).append('/').append(tree.getLines())
+            .append(" bytes=").append(channel.getBytes())
+            .append(String.format(" time=%.2fs", seconds))
+            .append(String.format(" events/sec=%.0f", channel.getEvents() / seconds))
+            .append(String.format(" MB/sec=%.2f", channel.getBytes() / seconds / (1024 * 1024)))
+            .append(" discovery=").append(sampler.getDiscoveryMs(start)).append("ms")
+            .append(String.format(" list.p50=%.1fms list.p99=%.1fms list.max=%.1fms",
+                counter.getListLatencyP50(), counter.getListLatencyP99(), counter.getListLatencyMax()))
+            .append(String.format(" firstbyte.p50=%.1fms transfer.p50=%.1fms transfer.p99=%.1fms commit.p99=%.1fms",
+                counter.getFirstByteLatencyP50(), counter.getTransferLatencyP50(), counter.getTransferLatencyP99(),
+                counter.getCommitLatencyP99()))
+            .append(" heap.peak=").append(sampler.getPeakHeap() / (1024 * 1024)).append("MB");
+        if (channel.getEvents() < tree.getLines()) {
+            report.append(" TIMED OUT");
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return executor appending append.bytes to the tree append.rate times
+     * per second, idle if append.rate is 0
+     */
+    private ScheduledExecutorService startAppends(final FileTree tree) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        if (!appending()) {
+            return scheduler;
+        }
+        final long bytes = getLong("append.bytes");
+        long period = Math.max(1, TimeUnit.SECONDS.toMicros(1) / getLong("append.rate"));
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tree.append(bytes);
+                } catch (IOException e) {
+                    System.err.println("append failed: " + e);
+                }
+            }
+        }, period, period, TimeUnit.MICROSECONDS);
+        return scheduler;
+    }
+
+    private boolean appending() {
+        return getLong("append.rate") > 0;
+    }
+
+    /**
+     * @return connection settings of protocol for the embedded servers,
+     * overridden by the source options given
+     */
+    private Map<String, String> sourceContext(String protocol) {
+        Map<String, String> context = new HashMap<>();
+        context.put("client.source", protocol);
+        context.put("name.server", "127.0.0.1");
+        context.put("user", "flumetest");
+        context.put("password", "flumetest");
+        context.put("run.discover.delay", "1000");
+        context.put("search.recursive", "true");
+        switch (protocol) {
+            case "ftp":
+                context.put("port", "2121");
+                break;
+            case "ftps":
+                context.put("port", "2221");
+                context.put("security.enabled", "true");
+                context.put("security.cipher", "TLS");
+                context.put("security.certificate.enabled", "false");
+                break;
+            case "sftp":
+                context.put("port", "2223");
+                context.put("knownHosts", "src/test/resources/known_hosts");
+                context.put("strictHostKeyChecking", "no");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown protocol " + protocol);
+        }
+        context.putAll(sourceOptions);
+        return context;
+    }
+
+    private Path startServer(String protocol) throws Exception {
+        switch (protocol) {
+            case "ftp":
+                EmbeddedFTPServer.ftpServer.start();
+                return EmbeddedFTPServer.homeDirectory;
+            case "ftps":
+                EmbeddedFTPSserver.ftpsServer.start();
+                return EmbeddedFTPSserver.homeDirectory;
+            case "sftp":
+                // a host key generated apart, so the one of the tests is left untouched
+                Path hostKey = TestFileUtils.createTmpDir().resolve("hostkey.ser");
+                EmbeddedSSHDServer.sshServer.setKeyPairProvider(
+                    new SimpleGeneratorHostKeyProvider(hostKey.toString(), "RSA", 2048));
+                EmbeddedSSHDServer.sshServer.start();
+                return EmbeddedSSHDServer.homeDirectory;
+            default:
+                throw new IllegalArgumentException("Unknown protocol " + protocol);
+        }
+    }
+
+    private void stopServer(String protocol) throws Exception {
+        switch (protocol) {
+            case "ftp":
+                EmbeddedFTPServer.ftpServer.stop();
+                break;
+            case "ftps":
+                EmbeddedFTPSserver.ftpsServer.stop();
+                break;
+            default:
+                EmbeddedSSHDServer.sshServer.stop();
+        }
+    }
+
+    private String describe() {
+        StringBuilder description = new StringBuilder("load run:");
+        for (Map.Entry<String, String> entry : new TreeMap<>(options).entrySet()) {
+            description.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : sourceOptions.entrySet()) {
+            description.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return description.toString();
+    }
+
+    private String get(String key) {
+        return options.get(key);
+    }
+
+    private int getInt(String key) {
+        return Integer.parseInt(get(key));
+    }
+
+    private long getLong(String key) {
+        return Long.parseLong(get(key));
+    }
+
+    /**
+     * Counts events and bytes handed to the channel, without keeping them.
+     */
+    private static class CountingChannelProcessor extends ChannelProcessor {
+
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        CountingChannelProcessor() {
+            super(null);
+        }
+
+        @Override
+        public void processEvent(Event event) {
+            events.incrementAndGet();
+            bytes.addAndGet(event.getBody().length);
+        }
+
+        @Override
+        public void processEventBatch(List<Event> batch) {
+            long size = 0;
+            for (Event event : batch) {
+                size += event.getBody().length;
+            }
+            events.addAndGet(batch.size());
+            bytes.addAndGet(size);
+        }
+
+        long getEvents() {
+            return events.get();
+        }
+
+        long getBytes() {
+            return bytes.get();
+        }
+    }
+
+    /**
+     * Samples the heap used, and when the source has seen every file of the
+     * tree.
+     */
+    private static class Sampler implements Runnable {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final SourceCounter counter;
+        private final long files;
+        private volatile long peakHeap;
+        private volatile long discovered;
+
+        Sampler(SourceCounter counter, long files) {
+            this.counter = counter;
+            this.files = files;
+        }
+
+        @Override
+        public void run() {
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            if (discovered == 0 && counter.getFilesCount() >= files) {
+                discovered = System.nanoTime();
+            }
+        }
+
+        /**
+         * @return ms from start until every file was seen, -1 if some never were
+         */
+        long getDiscoveryMs(long start) {
+            return discovered == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(discovered - start);
+        }
+
+        long getPeakHeap() {
+            return peakHeap;
+        }
+    }
+}
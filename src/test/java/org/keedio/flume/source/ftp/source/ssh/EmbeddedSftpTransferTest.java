@@ -0,0 +1,232 @@
+package org.keedio.flume.source.ftp.source.ssh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.jcraft.jsch.Session;
+import org.apache.flume.Context;
+import org.apache.flume.EventDeliveryException;
+import org.apache.sshd.SshServer;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.Command;
+import org.apache.sshd.server.PasswordAuthenticator;
+import org.apache.sshd.server.UserAuth;
+import org.apache.sshd.server.auth.UserAuthPassword;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.sftp.SftpSubsystem;
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.KeedioSourcePool;
+import org.keedio.flume.source.ftp.client.sources.SFTPSource;
+import org.keedio.flume.source.ftp.source.CapturingChannelProcessor;
+import org.keedio.flume.source.ftp.source.Source;
+import org.keedio.flume.source.ftp.source.TestFileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Integration tests of pooled SFTP connections sharing sessions, against an
+ * embedded SSH server of their own. Each test works in a directory of its
+ * own.
+ */
+public class EmbeddedSftpTransferTest {
+
+    private static final int PORT = 2224;
+    private static final String USER = "flumetest";
+
+    private Path homeDirectory;
+    private Path trackingFolder;
+    private SshServer sshServer;
+    private final List<Source> sources = new ArrayList<>();
+
+    @BeforeClass
+    public void initServer() throws IOException {
+        homeDirectory = TestFileUtils.createTmpDir();
+        trackingFolder = TestFileUtils.createTmpDir();
+        sshServer = createServer(PORT, homeDirectory, trackingFolder.resolve("hostkey.ser"));
+        sshServer.start();
+    }
+
+    @AfterClass
+    public void destroyServer() throws IOException, InterruptedException {
+        if (sshServer != null && !sshServer.isClosed()) {
+            sshServer.stop();
+        }
+        TestFileUtils.forceDelete(homeDirectory);
+        TestFileUtils.forceDelete(trackingFolder);
+    }
+
+    @AfterMethod
+    public void stopSources() {
+        for (Source source : sources) {
+            source.stop();
+        }
+        sources.clear();
+    }
+
+    /**
+     * Connections of the pool open a channel on the session of a previous
+     * one while it has less than sftp.channels, each one working on its own,
+     * and sessions are closed with their last channel.
+     */
+    @Test
+    public void testSharedSessions() throws Exception {
+        Path directory = Files.createDirectory(homeDirectory.resolve("shared"));
+        TestFileUtils.appendLines(directory.resolve("file"), "shared", 0, 10);
+
+        Map<String, String> settings = settings("shared");
+        settings.put("sftp.channels", "2");
+        KeedioSourcePool pool = new KeedioSourcePool(new Context(settings), 4);
+        List<KeedioSource> borrowed = new ArrayList<>();
+        Set<Session> sessions = Collections.newSetFromMap(new IdentityHashMap<Session, Boolean>());
+        try {
+            for (int i = 0; i < 4; i++) {
+                borrowed.add(pool.borrow());
+            }
+            for (KeedioSource connection : borrowed) {
+                Session session = ((SFTPSource) connection).getSessionSftp();
+                Assert.assertTrue(session.isConnected());
+                sessions.add(session);
+                Assert.assertEquals(connection.listElements("/shared").size(), 1);
+            }
+            Assert.assertEquals(sessions.size(), 2);
+            Assert.assertSame(((SFTPSource) borrowed.get(1)).getSessionSftp(),
+                ((SFTPSource) borrowed.get(0)).getSessionSftp());
+
+            // a channel given back leaves the session open for the other one
+            pool.invalidate(borrowed.get(1));
+            Assert.assertTrue(((SFTPSource) borrowed.get(0)).getSessionSftp().isConnected());
+            Assert.assertEquals(borrowed.get(0).listElements("/shared").size(), 1);
+            for (KeedioSource connection : borrowed) {
+                pool.release(connection);
+            }
+        } finally {
+            pool.close();
+        }
+        for (Session session : sessions) {
+            Assert.assertFalse(session.isConnected());
+        }
+    }
+
+    /**
+     * Files transferred at the same time over channels of shared sessions
+     * are delivered once, with growth picked up by later polls.
+     */
+    @Test
+    public void testParallelTransfersSharedSessions() throws IOException, EventDeliveryException {
+        Path directory = Files.createDirectory(homeDirectory.resolve("transfers"));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + i), "t" + i, 0, 500));
+        }
+
+        Map<String, String> settings = settings("transfers");
+        settings.put("max.connections", "3");
+        settings.put("sftp.channels", "4");
+        CapturingChannelProcessor channel = new CapturingChannelProcessor();
+        Source source = createSource(settings, channel);
+        poll(source, 2);
+        for (int i = 0; i < 6; i += 2) {
+            expected.addAll(TestFileUtils.appendLines(directory.resolve("file" + i), "t" + i, 500, 700));
+        }
+        poll(source, 2);
+
+        channel.assertDeliveredOnce(expected);
+    }
+
+    /**
+     * Sizes asked to the server are the current ones, and a file missing
+     * fails.
+     */
+    @Test
+    public void testStatSize() throws Exception {
+        Path directory = Files.createDirectory(homeDirectory.resolve("stat"));
+        Path file = directory.resolve("file");
+        TestFileUtils.appendLines(file, "stat", 0, 10);
+
+        KeedioSourcePool pool = new KeedioSourcePool(new Context(settings("stat")), 1);
+        try {
+            KeedioSource connection = pool.borrow();
+            Assert.assertEquals(connection.statSize("/stat/file"), Files.size(file));
+            TestFileUtils.appendLines(file, "stat", 10, 20);
+            Assert.assertEquals(connection.statSize("/stat/file"), Files.size(file));
+            try {
+                connection.statSize("/stat/missing");
+                Assert.fail("Size of a missing file");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().contains("/stat/missing"));
+            }
+            pool.release(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * @param directory of the home directory the source reads
+     * @return settings of a source reading directory, tracking in a file of
+     * its own
+     */
+    Map<String, String> settings(String directory) {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("client.source", "sftp");
+        settings.put("name.server", "127.0.0.1");
+        settings.put("port", String.valueOf(PORT));
+        settings.put("user", USER);
+        settings.put("password", USER);
+        settings.put("knownHosts", trackingFolder.resolve("known_hosts").toString());
+        settings.put("strictHostKeyChecking", "no");
+        settings.put("working.directory", "/" + directory);
+        settings.put("folder", trackingFolder.toString());
+        settings.put("file.name", directory + ".ser");
+        return settings;
+    }
+
+    Source createSource(Map<String, String> settings, CapturingChannelProcessor channel) {
+        Source source = new Source();
+        source.setName(settings.get("file.name"));
+        source.configure(new Context(settings));
+        source.setChannelProcessor(channel);
+        sources.add(source);
+        return source;
+    }
+
+    /**
+     * Run discovery and transfers polls times, as the runner of a source not
+     * started does.
+     */
+    static void poll(Source source, int polls) throws EventDeliveryException {
+        for (int i = 0; i < polls; i++) {
+            source.process();
+        }
+    }
+
+    static SshServer createServer(int port, Path home, Path hostKey) {
+        SshServer server = SshServer.setUpDefaultServer();
+        server.setPort(port);
+        server.setHost("127.0.0.1");
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(hostKey.toString(), "RSA", 2048));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(home.toFile().getAbsolutePath()));
+        server.setSubsystemFactories(Arrays.<NamedFactory<Command>>asList(new SftpSubsystem.Factory()));
+        server.setUserAuthFactories(Arrays.<NamedFactory<UserAuth>>asList(new UserAuthPassword.Factory()));
+        server.setPasswordAuthenticator(new PasswordAuthenticator() {
+            public boolean authenticate(String username, String password, ServerSession session) {
+                return USER.equals(username) && USER.equals(password);
+            }
+        });
+        return server;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import junit.framework.TestCase;
+
+public class AdaptiveDelayTest extends TestCase {
+
+    public AdaptiveDelayTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Idle passes double the delay up to max, a pass finding files resets it to min.
+     */
+    public void testBackoffAndReset() {
+        AdaptiveDelay delay = new AdaptiveDelay(3000, 1000, 10000);
+        assertEquals(3000, delay.get());
+        assertEquals(6000, delay.next(false));
+        assertEquals(10000, delay.next(false));
+        assertEquals(10000, delay.next(false));
+        assertEquals(1000, delay.next(true));
+        assertEquals(1000, delay.next(true));
+        assertEquals(2000, delay.next(false));
+    }
+
+    /**
+     * The initial delay is kept within min and max.
+     */
+    public void testInitialBounded() {
+        assertEquals(1000, new AdaptiveDelay(10, 1000, 10000).get());
+        assertEquals(10000, new AdaptiveDelay(60000, 1000, 10000).get());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class ChunkReaderTest extends TestCase {
+
+    public ChunkReaderTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Chunks are filled across short reads, only the last one is smaller.
+     */
+    public void testFullChunks() throws IOException {
+        byte[] content = "0123456789abcdefghij".getBytes();
+        ChunkReader reader = new ChunkReader(new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(3, len));
+            }
+        }, 8);
+
+        assertEquals("01234567", new String(reader.next()));
+        assertEquals("89abcdef", new String(reader.next()));
+        assertEquals("ghij", new String(reader.next()));
+        assertNull(reader.next());
+        assertEquals(content.length, reader.getConsumed());
+    }
+}
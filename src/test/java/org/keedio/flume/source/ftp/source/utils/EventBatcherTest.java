@@ -0,0 +1,98 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.flume.ChannelException;
+import org.apache.flume.Event;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.flume.event.EventBuilder;
+
+public class EventBatcherTest extends TestCase {
+
+    class DummyChannelProcessor extends ChannelProcessor {
+
+        private List<Integer> batches = new ArrayList<>();
+        private int failures;
+
+        public DummyChannelProcessor() {
+            super(null);
+        }
+
+        @Override
+        public void processEventBatch(List<Event> events) {
+            if (failures > 0) {
+                failures--;
+                throw new ChannelException("channel full");
+            }
+            batches.add(events.size());
+        }
+    }
+
+    public EventBatcherTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Batches are delivered when batchSize is reached and the remainder on flush.
+     */
+    public void testBatchSize() {
+        DummyChannelProcessor channel = new DummyChannelProcessor();
+        EventBatcher batcher = new EventBatcher(channel, 3, 0, 0);
+        for (int i = 0; i < 7; i++) {
+            batcher.add(EventBuilder.withBody(new byte[10]));
+        }
+        assertEquals(1, batcher.size());
+        batcher.flush();
+        assertEquals(0, batcher.size());
+        assertEquals("[3, 3, 1]", channel.batches.toString());
+    }
+
+    /**
+     * Batches are delivered as soon as their bodies reach maxBytes.
+     */
+    public void testBatchMaxBytes() {
+        DummyChannelProcessor channel = new DummyChannelProcessor();
+        EventBatcher batcher = new EventBatcher(channel, 100, 25, 0);
+        for (int i = 0; i < 6; i++) {
+            batcher.add(EventBuilder.withBody(new byte[10]));
+        }
+        batcher.flush();
+        assertEquals("[3, 3]", channel.batches.toString());
+    }
+
+    /**
+     * Flushing an empty batch does not reach the channel.
+     */
+    public void testFlushEmpty() {
+        DummyChannelProcessor channel = new DummyChannelProcessor();
+        EventBatcher batcher = new EventBatcher(channel, 10, 0, 0);
+        batcher.flush();
+        assertTrue(channel.batches.isEmpty());
+    }
+
+    /**
+     * A batch the channel refuses is retried, and only then the committed
+     * offset advances.
+     */
+    public void testRetryUntilDelivered() {
+        DummyChannelProcessor channel = new DummyChannelProcessor();
+        channel.failures = 2;
+        EventBatcher batcher = new EventBatcher(channel, 2, 0, 0, 1, 2);
+        batcher.add(EventBuilder.withBody(new byte[10]), 10);
+        assertEquals(0, batcher.getCommittedOffset());
+        batcher.add(EventBuilder.withBody(new byte[10]), 20);
+        assertEquals(0, channel.failures);
+        assertEquals("[2]", channel.batches.toString());
+        assertEquals(20, batcher.getCommittedOffset());
+        batcher.add(EventBuilder.withBody(new byte[10]), 30);
+        assertEquals(20, batcher.getCommittedOffset());
+        batcher.flush();
+        assertEquals(30, batcher.getCommittedOffset());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class LineSplitterTest extends TestCase {
+
+    public LineSplitterTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Lines end at \n, \r\n and \r, the last one may have no terminator.
+     */
+    public void testTerminators() throws IOException {
+        byte[] content = "a\nbb\r\n\nccc\rdd".getBytes();
+        LineSplitter splitter = new LineSplitter();
+        List<String> lines = split(splitter, new ByteArrayInputStream(content));
+
+        assertEquals(5, lines.size());
+        assertEquals("a", lines.get(0));
+        assertEquals("bb", lines.get(1));
+        assertEquals("", lines.get(2));
+        assertEquals("ccc", lines.get(3));
+        assertEquals("dd", lines.get(4));
+        assertEquals(content.length, splitter.getConsumed());
+    }
+
+    /**
+     * Lines longer than the buffer, and \r\n split between two reads.
+     */
+    public void testSmallBufferShortReads() throws IOException {
+        byte[] content = "first line\r\nsecond longer line\r\nthird\n".getBytes();
+        LineSplitter splitter = new LineSplitter(4);
+        List<String> lines = split(splitter, new OneByteInputStream(content));
+
+        assertEquals(3, lines.size());
+        assertEquals("first line", lines.get(0));
+        assertEquals("second longer line", lines.get(1));
+        assertEquals("third", lines.get(2));
+        assertEquals(content.length, splitter.getConsumed());
+    }
+
+    private List<String> split(LineSplitter splitter, InputStream in) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        splitter.split(in, new LineSplitter.LineHandler() {
+            @Override
+            public void handle(byte[] buffer, int offset, int length) {
+                lines.add(new String(buffer, offset, length));
+            }
+        });
+        return lines;
+    }
+
+    /**
+     * Returns at most one byte per read, as a slow network stream may.
+     */
+    private static class OneByteInputStream extends ByteArrayInputStream {
+
+        OneByteInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(1, len));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+public class MultilineAggregatorTest extends TestCase {
+
+    private static final String TRACE = "2018-01-01 10:00:00 ERROR failed\n"
+        + "java.lang.IllegalStateException: boom\n"
+        + "\tat a.B.c(B.java:10)\n"
+        + "\tat a.B.main(B.java:5)\n"
+        + "2018-01-01 10:00:01 INFO next\r\n"
+        + "2018-01-01 10:00:02 INFO last\n";
+
+    private final List<String> records = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+
+    public MultilineAggregatorTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Lines not matching the start pattern are appended to the record open,
+     * and every record ends right after its last line.
+     */
+    public void testStart() throws IOException {
+        MultilineAggregator aggregator = aggregate(TRACE, Pattern.compile("^\\d{4}-"), null, 0, 0);
+        assertTrue(aggregator.hasPending());
+        assertEquals(2, records.size());
+        assertEquals("2018-01-01 10:00:00 ERROR failed\njava.lang.IllegalStateException: boom\n"
+            + "\tat a.B.c(B.java:10)\n\tat a.B.main(B.java:5)", records.get(0));
+        assertEquals(TRACE.indexOf("2018-01-01 10:00:01"), (long) offsets.get(0));
+        assertEquals("2018-01-01 10:00:01 INFO next", records.get(1));
+        assertEquals(TRACE.indexOf("2018-01-01 10:00:02"), (long) offsets.get(1));
+
+        aggregator.flush();
+        assertFalse(aggregator.hasPending());
+        assertEquals("2018-01-01 10:00:02 INFO last", records.get(2));
+        assertEquals(TRACE.length(), (long) offsets.get(2));
+    }
+
+    /**
+     * Only lines matching the continuation pattern are appended, with both
+     * patterns a start line always begins a record.
+     */
+    public void testContinuation() throws IOException {
+        aggregate("a\n b\n c\nd\n", null, Pattern.compile("^\\s"), 0, 0).flush();
+        assertEquals(2, records.size());
+        assertEquals("a\n b\n c", records.get(0));
+        assertEquals("d", records.get(1));
+
+        records.clear();
+        aggregate("start 1\n x\n y\nstart 2\nz\n", Pattern.compile("^start"), Pattern.compile("^\\s"), 0, 0).flush();
+        assertEquals(3, records.size());
+        assertEquals("start 1\n x\n y", records.get(0));
+        assertEquals("start 2", records.get(1));
+        assertEquals("z", records.get(2));
+    }
+
+    /**
+     * A record reaching its max lines or bytes is handed on and the line
+     * begins the next one; a single line longer than max bytes is kept whole.
+     */
+    public void testLimits() throws IOException {
+        aggregate("s\n1\n2\n3\n4\n", Pattern.compile("^s"), null, 3, 0).flush();
+        assertEquals(2, records.size());
+        assertEquals("s\n1\n2", records.get(0));
+        assertEquals("3\n4", records.get(1));
+        assertEquals(6, (long) offsets.get(0));
+
+        records.clear();
+        aggregate("s\nabcdefgh\nij\n", Pattern.compile("^s"), null, 0, 5).flush();
+        assertEquals(3, records.size());
+        assertEquals("s", records.get(0));
+        assertEquals("abcdefgh", records.get(1));
+        assertEquals("ij", records.get(2));
+    }
+
+    private MultilineAggregator aggregate(String content, Pattern start, Pattern continuation, int maxLines,
+                                          int maxBytes) throws IOException {
+        LineSplitter splitter = new LineSplitter(8);
+        MultilineAggregator aggregator = new MultilineAggregator(splitter, start, continuation, maxLines, maxBytes,
+            new MultilineAggregator.RecordHandler() {
+                @Override
+                public void handle(byte[] buffer, int offset, int length, long endOffset) {
+                    records.add(new String(buffer, offset, length));
+                    offsets.add(endOffset);
+                }
+            });
+        splitter.split(new ByteArrayInputStream(content.getBytes()), aggregator);
+        return aggregator;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import junit.framework.TestCase;
+
+public class OffsetCheckpointTest extends TestCase {
+
+    public OffsetCheckpointTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Checkpoints are due every intervalBytes delivered.
+     */
+    public void testIntervalBytes() {
+        OffsetCheckpoint checkpoint = new OffsetCheckpoint(100, 0);
+        assertFalse(checkpoint.isDue(99));
+        assertTrue(checkpoint.isDue(150));
+        assertFalse(checkpoint.isDue(150));
+        assertFalse(checkpoint.isDue(249));
+        assertTrue(checkpoint.isDue(250));
+    }
+
+    /**
+     * Checkpoints are due once intervalMs passed, only if the offset advanced.
+     */
+    public void testIntervalMs() throws InterruptedException {
+        OffsetCheckpoint checkpoint = new OffsetCheckpoint(0, 10);
+        assertFalse(checkpoint.isDue(1));
+        Thread.sleep(20);
+        assertFalse(checkpoint.isDue(0));
+        assertTrue(checkpoint.isDue(1));
+        assertFalse(checkpoint.isDue(2));
+    }
+}
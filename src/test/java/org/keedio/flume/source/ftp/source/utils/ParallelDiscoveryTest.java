@@ -0,0 +1,209 @@
+/*
+ * KEEDIO
+ */
+package org.keedio.flume.source.ftp.source.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import org.apache.flume.Context;
+import org.keedio.flume.source.ftp.client.KeedioSource;
+import org.keedio.flume.source.ftp.client.KeedioSourcePool;
+
+import static org.mockito.Mockito.mock;
+
+public class ParallelDiscoveryTest extends TestCase {
+
+    private ExecutorService executor;
+    private CountingPool pool;
+
+    public ParallelDiscoveryTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        pool = new CountingPool();
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A tree deeper and wider than the queues is walked whole, each directory
+     * listed once, with the directories not fitting the queue listed by the
+     * worker that found them.
+     */
+    public void testDeepTreeSmallQueue() throws IOException {
+        TreeVisitor visitor = new TreeVisitor(30, 3, 2);
+        List<String> found = discover(new ParallelDiscovery<String>(pool, executor, 4, 1), visitor);
+
+        assertEquals(visitor.expected, new HashSet<>(found));
+        assertEquals(visitor.expected.size(), found.size());
+        assertEquals(visitor.listed.size(), visitor.listCount.get());
+        assertEquals(0, pool.invalidated.get());
+        assertEquals(pool.borrowed.get(), pool.released.get());
+    }
+
+    /**
+     * A directory failing to list stops the walk, the error is thrown to the
+     * caller and the connection of the worker invalidated.
+     */
+    public void testListingFailure() {
+        TreeVisitor visitor = new TreeVisitor(5, 2, 1);
+        visitor.failing = "/root/d1/d0";
+        try {
+            discover(new ParallelDiscovery<String>(pool, executor, 2, 4), visitor);
+            fail("Listing failure not thrown");
+        } catch (IOException e) {
+            assertEquals("Cannot list /root/d1/d0", e.getMessage());
+        }
+        assertEquals(1, pool.invalidated.get());
+        assertEquals(pool.borrowed.get(), pool.released.get() + pool.invalidated.get());
+    }
+
+    /**
+     * An error thrown by a worker, not only an exception, ends the walk: the
+     * caller gets it instead of waiting forever for the directory taken.
+     */
+    public void testWorkerError() {
+        pool.failing = new ExceptionInInitializerError("no connection");
+        try {
+            discover(new ParallelDiscovery<String>(pool, executor, 3, 1), new TreeVisitor(5, 2, 1));
+            fail("Worker error not thrown");
+        } catch (IOException e) {
+            assertSame(pool.failing, e.getCause());
+        }
+        assertEquals(0, pool.borrowed.get());
+    }
+
+    private List<String> discover(ParallelDiscovery<String> discovery, TreeVisitor visitor) throws IOException {
+        final List<String> found = new ArrayList<>();
+        discovery.discover("/root", visitor, new ParallelDiscovery.CandidateHandler<String>() {
+            @Override
+            public void handle(DiscoveredFile<String> file) {
+                found.add(file.getPath());
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Tree where every directory above maxDepth has subdirectories d0..dn and
+     * files f0..fn.
+     */
+    private static class TreeVisitor implements ParallelDiscovery.DirectoryVisitor<String> {
+
+        private final int maxDepth;
+        private final int subdirectories;
+        private final int files;
+        private final Set<String> expected = new HashSet<>();
+        private final Set<String> listed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        private final AtomicInteger listCount = new AtomicInteger();
+        private volatile String failing;
+
+        TreeVisitor(int maxDepth, int subdirectories, int files) {
+            this.maxDepth = maxDepth;
+            this.subdirectories = subdirectories;
+            this.files = files;
+            collect("/root", 0);
+        }
+
+        /**
+         * Only the first directory of each level has subdirectories, so the
+         * tree is maxDepth deep without growing exponentially.
+         */
+        private void collect(String directory, int depth) {
+            for (int i = 0; i < files; i++) {
+                expected.add(directory + "/f" + i);
+            }
+            if (depth < maxDepth) {
+                for (int i = 0; i < subdirectories; i++) {
+                    if (i == 0 || depth == 0) {
+                        collect(directory + "/d" + i, depth + 1);
+                    } else {
+                        collect(directory + "/d" + i, maxDepth);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<String> visit(KeedioSource connection, String directory,
+                                  BlockingQueue<DiscoveredFile<String>> candidates)
+                throws IOException, InterruptedException {
+            assertNotNull(connection);
+            assertTrue("listed twice " + directory, listed.add(directory));
+            listCount.incrementAndGet();
+            if (directory.equals(failing)) {
+                throw new IOException("Cannot list " + directory);
+            }
+            for (int i = 0; i < files; i++) {
+                candidates.put(new DiscoveredFile<>("f" + i, directory, "f" + i, 0, 1));
+            }
+            List<String> found = new ArrayList<>();
+            for (int i = 0; i < subdirectories; i++) {
+                String subdirectory = directory + "/d" + i;
+                if (expected.contains(subdirectory + "/f0")) {
+                    found.add(subdirectory);
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Pool lending mocked connections, counting what is done with them. The
+     * mocks are created up front, on the thread of the test.
+     */
+    private static class CountingPool extends KeedioSourcePool {
+
+        private final BlockingQueue<KeedioSource> connections = new LinkedBlockingQueue<>();
+        private final AtomicInteger borrowed = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+        private final AtomicInteger invalidated = new AtomicInteger();
+        private volatile Error failing;
+
+        CountingPool() {
+            super(new Context(), 4);
+            for (int i = 0; i < 4; i++) {
+                connections.add(mock(KeedioSource.class));
+            }
+        }
+
+        @Override
+        public KeedioSource borrow() {
+            if (failing != null) {
+                throw failing;
+            }
+            borrowed.incrementAndGet();
+            return connections.remove();
+        }
+
+        @Override
+        public void release(KeedioSource keedioSource) {
+            released.incrementAndGet();
+            connections.add(keedioSource);
+        }
+
+        @Override
+        public void invalidate(KeedioSource keedioSource) {
+            invalidated.incrementAndGet();
+            connections.add(keedioSource);
+        }
+    }
+}